@@ -0,0 +1,68 @@
+package com.fitnex.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    @Value("${ai.executor.pool-size:8}")
+    private int aiPoolSize;
+
+    @Value("${ai.executor.queue-capacity:200}")
+    private int aiQueueCapacity;
+
+    @Value("${ai.plan-job.pool-size:4}")
+    private int planJobPoolSize;
+
+    @Value("${ai.plan-job.queue-capacity:100}")
+    private int planJobQueueCapacity;
+
+    @Value("${security.password-hash.pool-size:0}")
+    private int passwordHashPoolSize;
+
+    @Value("${security.password-hash.queue-capacity:64}")
+    private int passwordHashQueueCapacity;
+
+    /**
+     * AI 回调后续处理（解析、落库）使用的线程池，避免占用 Tomcat 和 OkHttp 线程
+     */
+    @Bean
+    public ThreadPoolTaskExecutor aiTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(aiPoolSize);
+        executor.setMaxPoolSize(aiPoolSize);
+        executor.setQueueCapacity(aiQueueCapacity);
+        executor.setThreadNamePrefix("ai-task-");
+        return executor;
+    }
+
+    /**
+     * AI 训练计划异步生成任务使用的线程池，队列满时直接拒绝提交
+     */
+    @Bean
+    public ThreadPoolTaskExecutor planJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(planJobPoolSize);
+        executor.setMaxPoolSize(planJobPoolSize);
+        executor.setQueueCapacity(planJobQueueCapacity);
+        executor.setThreadNamePrefix("plan-job-");
+        return executor;
+    }
+
+    /**
+     * BCrypt 计算专用线程池，默认与 CPU 核数相同；队列满时直接拒绝，由登录和注册接口返回 503
+     */
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashExecutor() {
+        int poolSize = passwordHashPoolSize > 0 ? passwordHashPoolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(passwordHashQueueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        return executor;
+    }
+}
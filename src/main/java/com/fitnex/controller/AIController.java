@@ -6,35 +6,52 @@ import com.fitnex.repository.HealthProfileRepository;
 import com.fitnex.repository.NutritionRecordRepository;
 import com.fitnex.service.NutritionService;
 import com.fitnex.service.ai.AIService;
+import com.fitnex.service.ai.Deadline;
 import com.fitnex.util.SecurityUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/ai")
 @RequiredArgsConstructor
 public class AIController {
 
+    private static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+    private static final String MODEL_IDENTITY_ANSWER = "您好，我是依托default模型的智能助手，在Cursor IDE中为您提供代码编写和问题解答服务，你可以直接告诉我你的需求。";
+
     private final AIService aiService;
     private final SecurityUtil securityUtil;
     private final HealthProfileRepository healthProfileRepository;
     private final NutritionRecordRepository nutritionRecordRepository;
     private final NutritionService nutritionService;
 
+    @Value("${ai.deadline.default-ms:55000}")
+    private long defaultDeadlineMs;
+
+    @Value("${ai.deadline.min-ms:5000}")
+    private long minDeadlineMs;
+
     /**
      * 获取个性化饮食建议
      */
     @PostMapping("/nutrition-advice")
-    public ResponseEntity<Map<String, Object>> getNutritionAdvice(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getNutritionAdvice(
             Authentication authentication,
-            @RequestParam(required = false) String date) {
+            @RequestParam(required = false) String date,
+            @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMs) {
         Long userId = getUserIdFromAuthentication(authentication);
         
         // 获取用户健康档案
@@ -51,48 +68,106 @@ public class AIController {
         Double totalFat = (Double) summary.get("fat");
         
         // 调用AI获取建议
-        String advice = aiService.getNutritionAdvice(userId, profile, dailyCalories, 
-                targetCalories, totalProtein, totalCarbs, totalFat);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("advice", advice);
-        response.put("summary", summary);
-        
-        return ResponseEntity.ok(response);
+        return aiService.getNutritionAdviceAsync(userId, profile, dailyCalories,
+                targetCalories, totalProtein, totalCarbs, totalFat, deadline(timeoutMs))
+                .thenApply(advice -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("advice", advice);
+                    response.put("summary", summary);
+                    return ResponseEntity.ok(response);
+                });
     }
 
     /**
      * 智能问答 - 解答健身疑惑和健康咨询
      */
     @PostMapping("/question")
-    public ResponseEntity<Map<String, Object>> answerFitnessQuestion(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> answerFitnessQuestion(
             @RequestBody Map<String, String> request,
-            Authentication authentication) {
+            Authentication authentication,
+            @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMs) {
         String question = request.get("question");
         
         if (question == null || question.trim().isEmpty()) {
             Map<String, Object> error = new HashMap<>();
             error.put("error", "问题不能为空");
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
         }
         
         // 检查是否是模型相关的问题
-        String lowerQuestion = question.toLowerCase();
-        if (lowerQuestion.contains("什么模型") || lowerQuestion.contains("谁") || 
-            lowerQuestion.contains("你是谁") || lowerQuestion.contains("什么ai") ||
-            lowerQuestion.contains("什么助手") || lowerQuestion.contains("模型名称")) {
+        if (isModelIdentityQuestion(question)) {
             Map<String, Object> response = new HashMap<>();
-            response.put("answer", "您好，我是依托default模型的智能助手，在Cursor IDE中为您提供代码编写和问题解答服务，你可以直接告诉我你的需求。");
-            return ResponseEntity.ok(response);
+            response.put("answer", MODEL_IDENTITY_ANSWER);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
         }
         
-        String answer = aiService.answerFitnessQuestion(question);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("answer", answer);
-        response.put("question", question);
-        
-        return ResponseEntity.ok(response);
+        Long userId = getUserIdFromAuthentication(authentication);
+        return aiService.answerFitnessQuestionAsync(userId, question, deadline(timeoutMs))
+                .thenApply(answer -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("answer", answer);
+                    response.put("question", question);
+                    return ResponseEntity.ok(response);
+                });
+    }
+
+    /**
+     * 智能问答（流式） - 以 text/event-stream 逐帧推送回答内容
+     */
+    @PostMapping(value = "/question/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFitnessQuestion(
+            @RequestBody Map<String, String> request,
+            Authentication authentication,
+            @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMs) {
+        String question = request.get("question");
+        SseEmitter emitter = new SseEmitter();
+
+        if (question == null || question.trim().isEmpty()) {
+            sendEvent(emitter, "error", "问题不能为空");
+            emitter.complete();
+            return emitter;
+        }
+
+        if (isModelIdentityQuestion(question)) {
+            sendEvent(emitter, "message", MODEL_IDENTITY_ANSWER);
+            sendEvent(emitter, "done", "");
+            emitter.complete();
+            return emitter;
+        }
+
+        Long userId = getUserIdFromAuthentication(authentication);
+        AtomicBoolean streamed = new AtomicBoolean(false);
+        CompletableFuture<String> answerFuture = aiService.streamFitnessQuestion(userId, question, deadline(timeoutMs),
+                content -> {
+                    streamed.set(true);
+                    sendEvent(emitter, "message", content);
+                });
+        answerFuture.whenComplete((answer, e) -> {
+            if (answerFuture.isCancelled()) {
+                return;
+            }
+            // AI不可用时没有任何帧，补发降级回答
+            if (!streamed.get() && answer != null) {
+                sendEvent(emitter, "message", answer);
+            }
+            sendEvent(emitter, "done", "");
+            emitter.complete();
+        });
+        // 客户端断开或超时后取消星火调用，及时释放 WebSocket 和并发名额；正常结束时取消无效果
+        Runnable cancel = () -> answerFuture.cancel(true);
+        emitter.onCompletion(cancel);
+        emitter.onTimeout(cancel);
+        emitter.onError(error -> cancel.run());
+        return emitter;
+    }
+
+    /**
+     * 清空当前用户的问答会话记忆，开始新的对话
+     */
+    @DeleteMapping("/conversation")
+    public ResponseEntity<Void> clearConversation(Authentication authentication) {
+        aiService.clearConversation(getUserIdFromAuthentication(authentication));
+        return ResponseEntity.ok().build();
     }
 
     /**
@@ -125,6 +200,30 @@ public class AIController {
         return ResponseEntity.ok(response);
     }
 
+    private boolean isModelIdentityQuestion(String question) {
+        String lowerQuestion = question.toLowerCase();
+        return lowerQuestion.contains("什么模型") || lowerQuestion.contains("谁") ||
+            lowerQuestion.contains("你是谁") || lowerQuestion.contains("什么ai") ||
+            lowerQuestion.contains("什么助手") || lowerQuestion.contains("模型名称");
+    }
+
+    /**
+     * 本次请求的截止时间：客户端可通过请求头调整等待时间，限制在 [min-ms, default-ms] 之间，
+     * 避免过小的值让请求集中超时
+     */
+    private Deadline deadline(Long timeoutMs) {
+        long budget = timeoutMs != null && timeoutMs > 0 ? Math.min(timeoutMs, defaultDeadlineMs) : defaultDeadlineMs;
+        return Deadline.after(Math.max(budget, minDeadlineMs));
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, String data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开，忽略剩余帧
+        }
+    }
+
     private Long getUserIdFromAuthentication(Authentication authentication) {
         return securityUtil.getUserIdFromAuthentication(authentication);
     }
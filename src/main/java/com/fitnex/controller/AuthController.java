@@ -5,6 +5,7 @@ import com.fitnex.dto.AuthResponse;
 import com.fitnex.dto.RegisterRequest;
 import com.fitnex.entity.User;
 import com.fitnex.repository.UserRepository;
+import com.fitnex.security.PasswordHashRejectedException;
 import com.fitnex.service.AuthService;
 import com.fitnex.util.JwtTokenUtil;
 import jakarta.validation.Valid;
@@ -48,15 +49,11 @@ public class AuthController {
             user.setThirdPartyProvider(request.getThirdPartyProvider());
 
             User savedUser = userRepository.save(user);
-            String token = jwtTokenUtil.generateToken(
-                org.springframework.security.core.userdetails.User.builder()
-                    .username(savedUser.getUsername())
-                    .password(savedUser.getPassword())
-                    .authorities(new java.util.ArrayList<>())
-                    .build()
-            );
+            String token = jwtTokenUtil.generateToken(savedUser);
 
             return ResponseEntity.ok(authService.buildAuthResponse(savedUser, token));
+        } catch (PasswordHashRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("注册失败: " + e.getMessage());
@@ -77,6 +74,8 @@ public class AuthController {
     public ResponseEntity<?> thirdPartyLogin(@Valid @RequestBody com.fitnex.dto.ThirdPartyAuthRequest request) {
         try {
             return authService.authenticateThirdParty(request);
+        } catch (PasswordHashRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body("第三方登录失败: " + e.getMessage());
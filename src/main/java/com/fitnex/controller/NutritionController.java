@@ -2,6 +2,7 @@ package com.fitnex.controller;
 
 import com.fitnex.entity.NutritionRecord;
 import com.fitnex.service.NutritionService;
+import com.fitnex.service.ai.FoodNutritionIndex;
 import com.fitnex.util.SecurityUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -13,6 +14,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/nutrition")
@@ -32,6 +34,13 @@ public class NutritionController {
         return ResponseEntity.ok(nutritionService.getUserNutritionRecords(userId));
     }
 
+    @GetMapping("/foods/search")
+    public ResponseEntity<List<FoodNutritionIndex.FoodNutrition>> searchFoods(
+            @RequestParam("q") String keyword,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(nutritionService.searchFoods(keyword, limit));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<NutritionRecord> getNutritionRecord(@PathVariable Long id) {
         return ResponseEntity.ok(nutritionService.getNutritionRecord(id));
@@ -46,11 +55,28 @@ public class NutritionController {
     }
 
     @PostMapping("/recognize")
-    public ResponseEntity<NutritionRecord> recognizeFoodFromImage(
+    public CompletableFuture<ResponseEntity<NutritionRecord>> recognizeFoodFromImage(
             @RequestParam("image") MultipartFile imageFile,
             Authentication authentication) {
         Long userId = getUserIdFromAuthentication(authentication);
-        return ResponseEntity.ok(nutritionService.recognizeFoodFromImage(userId, imageFile));
+        return nutritionService.recognizeFoodFromImageAsync(userId, imageFile)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * 批量识别一餐中的多张食物图片，逐张返回识别结果或失败原因
+     */
+    @PostMapping("/recognize/batch")
+    public CompletableFuture<ResponseEntity<?>> recognizeFoodFromImages(
+            @RequestParam("images") List<MultipartFile> imageFiles,
+            Authentication authentication) {
+        Long userId = getUserIdFromAuthentication(authentication);
+        try {
+            return nutritionService.recognizeFoodFromImagesAsync(userId, imageFiles)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(e.getMessage()));
+        }
     }
 
     @PutMapping("/{id}")
@@ -1,10 +1,13 @@
 package com.fitnex.controller;
 
 import com.fitnex.entity.WorkoutPlan;
+import com.fitnex.dto.WorkoutPlanJobDto;
 import com.fitnex.dto.WorkoutPlanSummaryDto;
+import com.fitnex.service.WorkoutPlanJobService;
 import com.fitnex.service.WorkoutPlanService;
 import com.fitnex.util.SecurityUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -18,6 +21,7 @@ import java.util.Map;
 public class WorkoutPlanController {
 
     private final WorkoutPlanService workoutPlanService;
+    private final WorkoutPlanJobService workoutPlanJobService;
     private final SecurityUtil securityUtil;
 
     @GetMapping
@@ -51,6 +55,28 @@ public class WorkoutPlanController {
         return ResponseEntity.ok(workoutPlanService.generateAIWorkoutPlan(userId));
     }
 
+    /**
+     * 提交AI训练计划生成任务，立即返回任务ID，通过 GET /ai-generate/jobs/{jobId} 轮询结果
+     */
+    @PostMapping("/ai-generate/jobs")
+    public ResponseEntity<?> submitAIWorkoutPlanJob(Authentication authentication) {
+        Long userId = securityUtil.getUserIdFromAuthentication(authentication);
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(workoutPlanJobService.submitGenerateJob(userId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/ai-generate/jobs/{jobId}")
+    public ResponseEntity<WorkoutPlanJobDto> getAIWorkoutPlanJob(
+            @PathVariable String jobId,
+            Authentication authentication) {
+        Long userId = securityUtil.getUserIdFromAuthentication(authentication);
+        WorkoutPlanJobDto job = workoutPlanJobService.getJob(jobId, userId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
     @PostMapping("/{id}/adjust")
     public ResponseEntity<WorkoutPlan> adjustWorkoutPlan(
             @PathVariable Long id,
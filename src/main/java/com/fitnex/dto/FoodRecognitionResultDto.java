@@ -0,0 +1,19 @@
+package com.fitnex.dto;
+
+import com.fitnex.entity.NutritionRecord;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FoodRecognitionResultDto {
+    private Integer index;
+    private String fileName;
+    private Boolean success;
+    private NutritionRecord record;
+    private String error;
+}
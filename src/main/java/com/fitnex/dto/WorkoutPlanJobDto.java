@@ -0,0 +1,22 @@
+package com.fitnex.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkoutPlanJobDto {
+    private String jobId;
+    private Long userId;
+    private String status;
+    private Long planId;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,72 @@
+package com.fitnex.repository;
+
+import com.fitnex.entity.NutritionRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 营养记录批量写入：IDENTITY 主键下 Hibernate 无法批量插入，这里直接用一次 JDBC batch 写入，
+ * 并回填自增主键和审计时间
+ */
+@Repository
+@RequiredArgsConstructor
+public class NutritionRecordBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO nutrition_records " +
+            "(user_id, record_date, meal_type, food_name, quantity, unit, calories, protein, carbs, fat, fiber, " +
+            "image_url, is_ai_recognized, notes, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 需在事务内调用，记录的 user 必须已设置
+     */
+    public void batchInsert(List<NutritionRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (NutritionRecord record : records) {
+                    record.setCreatedAt(now);
+                    record.setUpdatedAt(now);
+                    ps.setLong(1, record.getUser().getId());
+                    ps.setObject(2, record.getRecordDate());
+                    ps.setObject(3, record.getMealType());
+                    ps.setObject(4, record.getFoodName());
+                    ps.setObject(5, record.getQuantity());
+                    ps.setObject(6, record.getUnit());
+                    ps.setObject(7, record.getCalories());
+                    ps.setObject(8, record.getProtein());
+                    ps.setObject(9, record.getCarbs());
+                    ps.setObject(10, record.getFat());
+                    ps.setObject(11, record.getFiber());
+                    ps.setObject(12, record.getImageUrl());
+                    ps.setObject(13, record.getIsAiRecognized());
+                    ps.setObject(14, record.getNotes());
+                    ps.setObject(15, now);
+                    ps.setObject(16, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int index = 0;
+                    while (keys.next() && index < records.size()) {
+                        records.get(index++).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
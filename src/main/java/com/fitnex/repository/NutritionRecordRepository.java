@@ -19,5 +19,8 @@ public interface NutritionRecordRepository extends JpaRepository<NutritionRecord
     
     @Query("SELECT SUM(nr.calories) FROM NutritionRecord nr WHERE nr.user.id = :userId AND nr.recordDate = :date")
     Integer sumCaloriesByUserIdAndDate(@Param("userId") Long userId, @Param("date") LocalDate date);
+    
+    @Query("SELECT nr.recordDate, COUNT(nr) FROM NutritionRecord nr WHERE nr.user.id = :userId AND nr.recordDate BETWEEN :startDate AND :endDate GROUP BY nr.recordDate")
+    List<Object[]> countDailyByUserIdAndRecordDateBetween(@Param("userId") Long userId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 }
 
@@ -21,6 +21,9 @@ public interface WorkoutRecordRepository extends JpaRepository<WorkoutRecord, Lo
     @Query("SELECT SUM(wr.caloriesBurned) FROM WorkoutRecord wr WHERE wr.user.id = :userId AND wr.startTime >= :startDate")
     Integer sumCaloriesBurnedByUserIdAndDate(@Param("userId") Long userId, @Param("startDate") LocalDateTime startDate);
     
+    @Query("SELECT CAST(wr.startTime AS LocalDate), COUNT(wr) FROM WorkoutRecord wr WHERE wr.user.id = :userId AND wr.startTime BETWEEN :start AND :end GROUP BY CAST(wr.startTime AS LocalDate)")
+    List<Object[]> countDailyByUserIdAndStartTimeBetween(@Param("userId") Long userId, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
     @Query("SELECT DISTINCT wr FROM WorkoutRecord wr LEFT JOIN FETCH wr.exerciseRecords WHERE wr.user.id = :userId AND wr.startTime BETWEEN :start AND :end")
     List<WorkoutRecord> findByUserIdAndStartTimeBetweenWithExercises(@Param("userId") Long userId, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
@@ -1,5 +1,6 @@
 package com.fitnex.security;
 
+import com.fitnex.service.UserDetailsServiceImpl;
 import com.fitnex.util.JwtTokenUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -7,43 +8,46 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenUtil jwtTokenUtil;
-    private final UserDetailsService userDetailsService;
+    private final UserDetailsServiceImpl userDetailsService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String username = null;
+        JwtTokenUtil.VerifiedToken claims = null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
+            String token = authHeader.substring(7);
             try {
-                username = jwtTokenUtil.getUsernameFromToken(token);
+                claims = jwtTokenUtil.verify(token);
             } catch (Exception e) {
                 logger.error("JWT token解析失败", e);
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtTokenUtil.validateToken(token, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                    userDetails, null, userDetails.getAuthorities());
+        if (claims != null && claims.subject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UsernamePasswordAuthenticationToken authToken = claims.userId() != null
+                    ? authenticateFromClaims(claims)
+                    : authenticateFromUserDetails(claims);
+            if (authToken != null) {
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
@@ -51,5 +55,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
 
+    /**
+     * 令牌自带用户ID、启用状态和角色时直接构建登录主体，不查询数据库。
+     * 启用状态和角色以签发时为准：签发后被禁用或降级的用户在令牌过期（jwt.expiration）前仍可访问，
+     * 需要立即生效时应缩短令牌有效期或另行实现吊销检查。
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromClaims(JwtTokenUtil.VerifiedToken claims) {
+        if (Boolean.FALSE.equals(claims.enabled())) {
+            return null;
+        }
+        String role = claims.role();
+        JwtUserPrincipal principal = new JwtUserPrincipal(claims.userId(), claims.subject(), role);
+        List<GrantedAuthority> authorities = role != null
+                ? List.of(new SimpleGrantedAuthority("ROLE_" + role))
+                : Collections.emptyList();
+        return new UsernamePasswordAuthenticationToken(principal, null, authorities);
+    }
+
+    /**
+     * 兼容升级前签发、不含用户ID声明的令牌，过期后自然淘汰
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromUserDetails(JwtTokenUtil.VerifiedToken claims) {
+        UserDetails userDetails = userDetailsService.loadUserForToken(claims.subject());
+        if (!userDetails.isEnabled()) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+}
@@ -0,0 +1,15 @@
+package com.fitnex.security;
+
+import java.security.Principal;
+
+/**
+ * 从 JWT 声明直接构建的轻量登录主体，鉴权过程中不查询数据库；
+ * 其中的角色为签发时的快照，令牌过期前不会感知后续的禁用或角色变更
+ */
+public record JwtUserPrincipal(Long userId, String username, String role) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
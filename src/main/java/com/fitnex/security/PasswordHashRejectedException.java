@@ -0,0 +1,11 @@
+package com.fitnex.security;
+
+/**
+ * 密码哈希线程池已满，请求被拒绝，调用方应返回 503
+ */
+public class PasswordHashRejectedException extends RuntimeException {
+
+    public PasswordHashRejectedException() {
+        super("登录请求繁忙，请稍后再试");
+    }
+}
@@ -0,0 +1,158 @@
+package com.fitnex.service;
+
+import com.fitnex.repository.NutritionRecordRepository;
+import com.fitnex.repository.WorkoutRecordRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户近 30 天活跃度计数：每个用户一个 Redis 哈希，按天分桶记录训练和饮食记录数，
+ * 新增、删除记录时增量更新，读取时只汇总窗口内的 31 个分桶。
+ * 哈希不存在时用按天分组的计数查询从数据库重建，并在 rebuild-interval-hours 后过期重建，纠正可能的偏差。
+ */
+@Component
+@RequiredArgsConstructor
+public class ActivityCounterStore {
+
+    public static final int WINDOW_DAYS = 30;
+
+    private static final String REDIS_KEY_PREFIX = "fitnex:activity:";
+    private static final String WORKOUT_PREFIX = "w:";
+    private static final String NUTRITION_PREFIX = "n:";
+    private static final String SEEDED_FIELD = "seeded";
+
+    // 只在哈希已建立时累加，未建立时由下一次读取从数据库重建
+    private static final DefaultRedisScript<Long> INCREMENT_IF_EXISTS = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return redis.call('hincrby', KEYS[1], ARGV[1], ARGV[2]) end return 0",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final WorkoutRecordRepository workoutRecordRepository;
+    private final NutritionRecordRepository nutritionRecordRepository;
+
+    @Value("${activity-counter.rebuild-interval-hours:24}")
+    private long rebuildIntervalHours;
+
+    public ActivityCounts getCounts(Long userId) {
+        LocalDate today = LocalDate.now();
+        String key = REDIS_KEY_PREFIX + userId;
+        try {
+            Map<Object, Object> buckets = redisTemplate.opsForHash().entries(key);
+            if (buckets.isEmpty()) {
+                buckets = rebuild(key, userId, today);
+            }
+            return sum(buckets, today);
+        } catch (Exception e) {
+            System.err.println("读取活跃度计数失败: " + e.getMessage());
+            return sum(loadFromDatabase(userId, today), today);
+        }
+    }
+
+    public void workoutCreated(Long userId, LocalDateTime startTime) {
+        increment(userId, WORKOUT_PREFIX, startTime != null ? startTime.toLocalDate() : null, 1);
+    }
+
+    public void workoutDeleted(Long userId, LocalDateTime startTime) {
+        increment(userId, WORKOUT_PREFIX, startTime != null ? startTime.toLocalDate() : null, -1);
+    }
+
+    public void nutritionCreated(Long userId, LocalDate recordDate) {
+        increment(userId, NUTRITION_PREFIX, recordDate, 1);
+    }
+
+    public void nutritionDeleted(Long userId, LocalDate recordDate) {
+        increment(userId, NUTRITION_PREFIX, recordDate, -1);
+    }
+
+    /**
+     * 处于事务中时在提交后更新，回滚的记录不会计入
+     */
+    private void increment(Long userId, String prefix, LocalDate day, long delta) {
+        if (userId == null || day == null || day.isBefore(LocalDate.now().minusDays(WINDOW_DAYS))) {
+            return;
+        }
+        Runnable update = () -> {
+            try {
+                redisTemplate.execute(INCREMENT_IF_EXISTS, List.of(REDIS_KEY_PREFIX + userId),
+                        prefix + day, String.valueOf(delta));
+            } catch (Exception e) {
+                System.err.println("更新活跃度计数失败: " + e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    private Map<Object, Object> rebuild(String key, Long userId, LocalDate today) {
+        Map<String, String> buckets = loadFromDatabase(userId, today);
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.delete(key);
+                ops.opsForHash().putAll(key, buckets);
+                ops.expire(key, Duration.ofHours(rebuildIntervalHours));
+                return null;
+            }
+        });
+        return new HashMap<>(buckets);
+    }
+
+    private Map<String, String> loadFromDatabase(Long userId, LocalDate today) {
+        LocalDate start = today.minusDays(WINDOW_DAYS);
+        Map<String, String> buckets = new HashMap<>();
+        buckets.put(SEEDED_FIELD, "1");
+        for (Object[] row : workoutRecordRepository.countDailyByUserIdAndStartTimeBetween(
+                userId, start.atStartOfDay(), LocalDateTime.now())) {
+            buckets.put(WORKOUT_PREFIX + row[0], String.valueOf(row[1]));
+        }
+        for (Object[] row : nutritionRecordRepository.countDailyByUserIdAndRecordDateBetween(userId, start, today)) {
+            buckets.put(NUTRITION_PREFIX + row[0], String.valueOf(row[1]));
+        }
+        return buckets;
+    }
+
+    private ActivityCounts sum(Map<?, ?> buckets, LocalDate today) {
+        int workouts = 0;
+        int nutrition = 0;
+        for (int i = 0; i <= WINDOW_DAYS; i++) {
+            LocalDate day = today.minusDays(i);
+            workouts += count(buckets.get(WORKOUT_PREFIX + day));
+            nutrition += count(buckets.get(NUTRITION_PREFIX + day));
+        }
+        return new ActivityCounts(Math.max(0, workouts), Math.max(0, nutrition));
+    }
+
+    private static int count(Object value) {
+        return value != null ? Integer.parseInt(value.toString()) : 0;
+    }
+
+    /**
+     * 近 30 天训练记录数和饮食记录数
+     */
+    public record ActivityCounts(int workoutCount, int nutritionCount) {
+    }
+}
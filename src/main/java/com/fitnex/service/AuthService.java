@@ -6,19 +6,15 @@ import com.fitnex.dto.ThirdPartyAuthRequest;
 import com.fitnex.entity.User;
 import com.fitnex.entity.User.MemberLevel;
 import com.fitnex.repository.UserRepository;
-import com.fitnex.repository.NutritionRecordRepository;
-import com.fitnex.repository.WorkoutRecordRepository;
+import com.fitnex.security.PasswordHashRejectedException;
 import com.fitnex.util.JwtTokenUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -29,9 +25,7 @@ public class AuthService {
 
     private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
-    private final WorkoutRecordRepository workoutRecordRepository;
-    private final NutritionRecordRepository nutritionRecordRepository;
-    private final UserDetailsService userDetailsService;
+    private final ActivityCounterStore activityCounterStore;
     private final JwtTokenUtil jwtTokenUtil;
     private final PasswordEncoder passwordEncoder;
 
@@ -62,10 +56,11 @@ public class AuthService {
             refreshMemberLevel(user);
             userRepository.save(user);
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(user.getUsername());
-            String token = jwtTokenUtil.generateToken(userDetails);
+            String token = jwtTokenUtil.generateToken(user);
 
             return ResponseEntity.ok(buildAuthResponse(user, token));
+        } catch (PasswordHashRejectedException e) {
+            return ResponseEntity.status(503).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(401).body("用户名或密码错误");
         }
@@ -93,8 +88,7 @@ public class AuthService {
         refreshMemberLevel(user);
         userRepository.save(user);
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getUsername());
-        String token = jwtTokenUtil.generateToken(userDetails);
+        String token = jwtTokenUtil.generateToken(user);
         return ResponseEntity.ok(buildAuthResponse(user, token));
     }
 
@@ -105,14 +99,9 @@ public class AuthService {
     }
 
     private void refreshMemberLevel(User user) {
-        LocalDate today = LocalDate.now();
-        LocalDateTime last30Days = today.minusDays(30).atStartOfDay();
-        int workoutCount = workoutRecordRepository
-                .findByUserIdAndStartTimeBetween(user.getId(), last30Days, LocalDateTime.now())
-                .size();
-        int nutritionCount = nutritionRecordRepository
-                .findByUserIdAndRecordDateBetween(user.getId(), today.minusDays(30), today)
-                .size();
+        ActivityCounterStore.ActivityCounts counts = activityCounterStore.getCounts(user.getId());
+        int workoutCount = counts.workoutCount();
+        int nutritionCount = counts.nutritionCount();
         double compositeScore = workoutCount * 2.0 + nutritionCount * 0.5
                 + Optional.ofNullable(user.getTotalConsumption()).orElse(0.0) / 500.0;
 
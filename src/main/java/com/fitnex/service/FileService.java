@@ -13,6 +13,8 @@ import java.util.UUID;
 @Service
 public class FileService {
 
+    private static final String IMAGE_URL_PREFIX = "/uploads/images/";
+
     @Value("${file.upload.image.path}")
     private String imageUploadPath;
 
@@ -28,22 +30,7 @@ public class FileService {
         }
 
         String filename = UUID.randomUUID().toString() + extension;
-        
-        // 处理路径：如果是相对路径（以 ./ 开头），使用项目根目录
-        Path uploadPath;
-        if (imageUploadPath.startsWith("./")) {
-            // 相对路径，使用项目根目录
-            String projectRoot = System.getProperty("user.dir");
-            String relativePath = imageUploadPath.substring(2); // 去掉 "./"
-            uploadPath = Paths.get(projectRoot, relativePath);
-        } else if (imageUploadPath.startsWith("/")) {
-            // 绝对路径，直接使用
-            uploadPath = Paths.get(imageUploadPath);
-        } else {
-            // 相对路径，使用项目根目录
-            String projectRoot = System.getProperty("user.dir");
-            uploadPath = Paths.get(projectRoot, imageUploadPath);
-        }
+        Path uploadPath = resolveUploadPath();
 
         // 确保目录存在
         if (!Files.exists(uploadPath)) {
@@ -59,7 +46,38 @@ public class FileService {
         Files.copy(file.getInputStream(), filePath);
 
         // 返回相对路径，用于 URL 访问
-        return "/uploads/images/" + filename;
+        return IMAGE_URL_PREFIX + filename;
+    }
+
+    /**
+     * 删除 saveImage 保存的图片，用于记录未能落库时清理孤立文件；删除失败只记录日志
+     */
+    public void deleteImage(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(IMAGE_URL_PREFIX)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(resolveUploadPath().resolve(imageUrl.substring(IMAGE_URL_PREFIX.length())));
+        } catch (Exception e) {
+            System.err.println("删除图片失败: " + imageUrl + " " + e.getMessage());
+        }
+    }
+
+    private Path resolveUploadPath() {
+        // 处理路径：如果是相对路径（以 ./ 开头），使用项目根目录
+        if (imageUploadPath.startsWith("./")) {
+            // 相对路径，使用项目根目录
+            String projectRoot = System.getProperty("user.dir");
+            String relativePath = imageUploadPath.substring(2); // 去掉 "./"
+            return Paths.get(projectRoot, relativePath);
+        } else if (imageUploadPath.startsWith("/")) {
+            // 绝对路径，直接使用
+            return Paths.get(imageUploadPath);
+        } else {
+            // 相对路径，使用项目根目录
+            String projectRoot = System.getProperty("user.dir");
+            return Paths.get(projectRoot, imageUploadPath);
+        }
     }
 }
 
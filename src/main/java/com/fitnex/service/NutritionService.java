@@ -1,30 +1,57 @@
 package com.fitnex.service;
 
+import com.fitnex.dto.FoodRecognitionResultDto;
 import com.fitnex.entity.HealthProfile;
 import com.fitnex.entity.NutritionRecord;
 import com.fitnex.entity.User;
+import com.fitnex.repository.NutritionRecordBatchRepository;
 import com.fitnex.repository.NutritionRecordRepository;
 import com.fitnex.repository.UserRepository;
 import com.fitnex.service.ai.AIService;
+import com.fitnex.service.ai.FoodNutritionIndex;
+import com.fitnex.util.TransactionRunner;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 @Service
 @RequiredArgsConstructor
 public class NutritionService {
 
     private final NutritionRecordRepository nutritionRecordRepository;
+    private final NutritionRecordBatchRepository nutritionRecordBatchRepository;
     private final UserRepository userRepository;
     private final AIService aiService;
     private final FileService fileService;
     private final HealthProfileService healthProfileService;
+    private final FoodNutritionIndex foodNutritionIndex;
+    private final TransactionRunner transactionRunner;
+    private final ActivityCounterStore activityCounterStore;
+    @Qualifier("aiTaskExecutor")
+    private final Executor aiTaskExecutor;
+
+    @Value("${ai.batch-recognition.max-images:8}")
+    private int batchMaxImages;
+
+    @Value("${ai.batch-recognition.per-user-concurrency:3}")
+    private int batchPerUserConcurrency;
+
+    // 正在执行批量识别的用户，同一用户同时只允许一个批量任务
+    private final Set<Long> batchRecognizingUsers = ConcurrentHashMap.newKeySet();
 
     public List<NutritionRecord> getUserNutritionRecords(Long userId) {
         return nutritionRecordRepository.findByUserId(userId);
@@ -47,30 +74,158 @@ public class NutritionService {
         if (record.getRecordDate() == null) {
             record.setRecordDate(LocalDate.now());
         }
-        return nutritionRecordRepository.save(record);
+        NutritionRecord saved = nutritionRecordRepository.save(record);
+        activityCounterStore.nutritionCreated(userId, saved.getRecordDate());
+        return saved;
     }
 
-    @Transactional
     public NutritionRecord recognizeFoodFromImage(Long userId, MultipartFile imageFile) {
+        // AI识别在事务外执行，避免等待AI期间占用数据库连接
+        NutritionRecord record = aiService.recognizeFoodFromImage(imageFile);
+        return saveRecognizedRecord(userId, imageFile, record);
+    }
+
+    /**
+     * 异步识别食物图片，等待AI期间不占用请求线程
+     */
+    public CompletableFuture<NutritionRecord> recognizeFoodFromImageAsync(Long userId, MultipartFile imageFile) {
+        return aiService.recognizeFoodFromImageAsync(imageFile)
+                .thenApplyAsync(record -> saveRecognizedRecord(userId, imageFile, record), aiTaskExecutor);
+    }
+
+    /**
+     * 批量识别多张食物图片：同一用户任意时刻最多 batchPerUserConcurrency 张图片并行识别，
+     * 成功结果一次批量写入，单张图片失败只体现在对应结果中
+     */
+    public CompletableFuture<List<FoodRecognitionResultDto>> recognizeFoodFromImagesAsync(Long userId, List<MultipartFile> imageFiles) {
+        if (imageFiles == null || imageFiles.isEmpty()) {
+            throw new RuntimeException("请至少上传一张图片");
+        }
+        if (imageFiles.size() > batchMaxImages) {
+            throw new RuntimeException("单次最多识别" + batchMaxImages + "张图片");
+        }
+        if (!batchRecognizingUsers.add(userId)) {
+            throw new RuntimeException("已有批量识别任务进行中，请稍后再试");
+        }
+
         try {
-            // 先调用AI服务识别食物（直接使用MultipartFile）
-            NutritionRecord record = aiService.recognizeFoodFromImage(imageFile);
-            
-            // 保存图片
-            String imageUrl = fileService.saveImage(imageFile);
-            
-            record.setUser(userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("用户不存在")));
+            int size = imageFiles.size();
+            NutritionRecord[] records = new NutritionRecord[size];
+            String[] errors = new String[size];
+
+            // 按并发上限分成若干条链，每条链内串行识别，整体并发不超过上限且不阻塞线程
+            int lanes = Math.max(1, Math.min(batchPerUserConcurrency, size));
+            CompletableFuture<?>[] laneFutures = new CompletableFuture<?>[lanes];
+            for (int lane = 0; lane < lanes; lane++) {
+                CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+                for (int i = lane; i < size; i += lanes) {
+                    int index = i;
+                    chain = chain
+                            // 图片解码缩放较重，放到 aiTaskExecutor 上执行，不占用 OkHttp 回调线程
+                            .thenComposeAsync(ignored -> aiService.recognizeFoodFromImageAsync(imageFiles.get(index)),
+                                    aiTaskExecutor)
+                            .handle((record, error) -> {
+                                if (error != null) {
+                                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                            ? error.getCause() : error;
+                                    errors[index] = "食物识别失败: " + cause.getMessage();
+                                } else if (AIService.isUnrecognized(record)) {
+                                    // 识别失败时 AIService 返回默认记录，不落库，按失败单独报告
+                                    errors[index] = "食物识别失败: 未能识别图片中的食物";
+                                } else {
+                                    records[index] = record;
+                                }
+                                return null;
+                            });
+                }
+                laneFutures[lane] = chain;
+            }
+
+            return CompletableFuture.allOf(laneFutures)
+                    .thenApplyAsync(ignored -> saveRecognizedBatch(userId, imageFiles, records, errors), aiTaskExecutor)
+                    .whenComplete((result, error) -> batchRecognizingUsers.remove(userId));
+        } catch (RuntimeException e) {
+            batchRecognizingUsers.remove(userId);
+            throw e;
+        }
+    }
+
+    private List<FoodRecognitionResultDto> saveRecognizedBatch(Long userId, List<MultipartFile> imageFiles,
+                                                               NutritionRecord[] records, String[] errors) {
+        List<NutritionRecord> toSave = new ArrayList<>();
+        for (int i = 0; i < records.length; i++) {
+            if (records[i] == null) {
+                continue;
+            }
+            try {
+                records[i].setImageUrl(fileService.saveImage(imageFiles.get(i)));
+                records[i].setIsAiRecognized(true);
+                records[i].setRecordDate(LocalDate.now());
+                toSave.add(records[i]);
+            } catch (Exception e) {
+                errors[i] = "保存图片失败: " + e.getMessage();
+                records[i] = null;
+            }
+        }
+
+        if (!toSave.isEmpty()) {
+            try {
+                transactionRunner.execute("nutrition-recognize-batch", () -> {
+                    User user = userRepository.findById(userId)
+                            .orElseThrow(() -> new RuntimeException("用户不存在"));
+                    toSave.forEach(record -> record.setUser(user));
+                    nutritionRecordBatchRepository.batchInsert(toSave);
+                    toSave.forEach(record -> activityCounterStore.nutritionCreated(userId, record.getRecordDate()));
+                    return null;
+                });
+            } catch (Exception e) {
+                // 记录未落库，删除已保存的图片，避免留下无人引用的文件
+                toSave.forEach(record -> fileService.deleteImage(record.getImageUrl()));
+                throw new RuntimeException("食物识别失败: " + e.getMessage());
+            }
+        }
+
+        List<FoodRecognitionResultDto> results = new ArrayList<>(records.length);
+        for (int i = 0; i < records.length; i++) {
+            results.add(FoodRecognitionResultDto.builder()
+                    .index(i)
+                    .fileName(imageFiles.get(i).getOriginalFilename())
+                    .success(records[i] != null)
+                    .record(records[i])
+                    .error(errors[i])
+                    .build());
+        }
+        return results;
+    }
+
+    private NutritionRecord saveRecognizedRecord(Long userId, MultipartFile imageFile, NutritionRecord record) {
+        String imageUrl = null;
+        try {
+            // 图片写盘同样放在事务之外，事务内只做查询用户和插入记录
+            imageUrl = fileService.saveImage(imageFile);
             record.setImageUrl(imageUrl);
             record.setIsAiRecognized(true);
             record.setRecordDate(LocalDate.now());
-            
-            return nutritionRecordRepository.save(record);
+            return transactionRunner.execute("nutrition-recognize", () -> {
+                record.setUser(userRepository.findById(userId)
+                        .orElseThrow(() -> new RuntimeException("用户不存在")));
+                NutritionRecord saved = nutritionRecordRepository.save(record);
+                activityCounterStore.nutritionCreated(userId, saved.getRecordDate());
+                return saved;
+            });
         } catch (Exception e) {
+            fileService.deleteImage(imageUrl);
             throw new RuntimeException("食物识别失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 食物名称联想，支持中文名、别名和拼音（全拼、首字母）前缀
+     */
+    public List<FoodNutritionIndex.FoodNutrition> searchFoods(String keyword, int limit) {
+        return foodNutritionIndex.search(keyword, Math.max(1, Math.min(limit, 20)));
+    }
+
     @Transactional
     public NutritionRecord updateNutritionRecord(Long recordId, NutritionRecord record) {
         NutritionRecord existingRecord = nutritionRecordRepository.findById(recordId)
@@ -90,7 +245,10 @@ public class NutritionService {
 
     @Transactional
     public void deleteNutritionRecord(Long recordId) {
-        nutritionRecordRepository.deleteById(recordId);
+        nutritionRecordRepository.findById(recordId).ifPresent(record -> {
+            nutritionRecordRepository.delete(record);
+            activityCounterStore.nutritionDeleted(record.getUser().getId(), record.getRecordDate());
+        });
     }
 
     public Integer getDailyCalories(Long userId, LocalDate date) {
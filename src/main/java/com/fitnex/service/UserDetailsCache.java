@@ -0,0 +1,185 @@
+package com.fitnex.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitnex.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * 登录用户信息缓存：本地 Caffeine + Redis 两级，按用户名命中。
+ * 密码哈希只保存在本地缓存，写入 Redis 的副本不含密码，从 Redis 命中的条目 password 为 null，
+ * 登录校验密码时需回库读取。
+ * 用户名、密码或启用状态变化时删除 Redis 条目并通过发布订阅通知所有节点清除本地条目。
+ */
+@Component
+@RequiredArgsConstructor
+public class UserDetailsCache implements MessageListener {
+
+    private static final String REDIS_KEY_PREFIX = "fitnex:user-details:";
+    private static final String EVICT_CHANNEL = "fitnex:user-details:evict";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${security.user-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${security.user-cache.local-ttl-seconds:300}")
+    private long localTtlSeconds;
+
+    @Value("${security.user-cache.redis-ttl-seconds:1800}")
+    private long redisTtlSeconds;
+
+    @Value("${security.user-cache.redis-enabled:true}")
+    private boolean redisEnabled;
+
+    // 每个请求都会查询，Caffeine 读取不加全局锁，并发请求互不阻塞
+    private Cache<String, CachedUser> localCache;
+
+    private Counter localHits;
+    private Counter redisHits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "userDetails");
+        localHits = requestCounter("local");
+        redisHits = requestCounter("redis");
+        misses = requestCounter("miss");
+        Gauge.builder("security.user.cache.size", this, UserDetailsCache::localSize)
+                .description("本地用户信息缓存条目数")
+                .register(meterRegistry);
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVICT_CHANNEL));
+    }
+
+    private Counter requestCounter(String result) {
+        return Counter.builder("security.user.cache.requests")
+                .description("用户信息缓存查询次数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public CachedUser get(String username) {
+        CachedUser cached = localCache.getIfPresent(username);
+        if (cached != null) {
+            localHits.increment();
+            return cached;
+        }
+        if (redisEnabled) {
+            try {
+                String json = redisTemplate.opsForValue().get(REDIS_KEY_PREFIX + username);
+                if (json != null) {
+                    cached = objectMapper.readValue(json, CachedUser.class);
+                    localCache.put(username, cached);
+                    redisHits.increment();
+                    return cached;
+                }
+            } catch (Exception e) {
+                System.err.println("读取用户缓存失败: " + e.getMessage());
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(CachedUser user) {
+        localCache.put(user.username(), user);
+        if (redisEnabled) {
+            try {
+                redisTemplate.opsForValue().set(REDIS_KEY_PREFIX + user.username(),
+                        objectMapper.writeValueAsString(user.withoutPassword()), Duration.ofSeconds(redisTtlSeconds));
+            } catch (Exception e) {
+                System.err.println("写入用户缓存失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 使用户缓存失效；处于事务中时在提交后执行，避免并发请求把旧数据重新写回缓存
+     */
+    public void evict(String... usernames) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(usernames);
+                }
+            });
+        } else {
+            evictNow(usernames);
+        }
+    }
+
+    private void evictNow(String... usernames) {
+        for (String username : usernames) {
+            if (username == null) {
+                continue;
+            }
+            localCache.invalidate(username);
+            if (redisEnabled) {
+                try {
+                    redisTemplate.delete(REDIS_KEY_PREFIX + username);
+                    redisTemplate.convertAndSend(EVICT_CHANNEL, username);
+                } catch (Exception e) {
+                    System.err.println("清除用户缓存失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 其他节点发布的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        localCache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private long localSize() {
+        return localCache.estimatedSize();
+    }
+
+    /**
+     * 构建 UserDetails 所需的用户字段；password 为 null 表示来自 Redis 副本，不含密码哈希
+     */
+    public record CachedUser(Long id, String username, String password, Boolean enabled, String role) {
+
+        static CachedUser from(User user) {
+            return new CachedUser(user.getId(), user.getUsername(), user.getPassword(),
+                    user.getEnabled(), user.getRole().name());
+        }
+
+        CachedUser withoutPassword() {
+            return new CachedUser(id, username, null, enabled, role);
+        }
+
+        public boolean hasPassword() {
+            return password != null;
+        }
+    }
+}
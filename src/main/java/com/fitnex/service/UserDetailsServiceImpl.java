@@ -1,35 +1,79 @@
 package com.fitnex.service;
 
-import com.fitnex.entity.User;
 import com.fitnex.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
+    /**
+     * 登录时校验密码使用，缓存条目不含密码哈希（来自 Redis）时回库读取
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        UserDetailsCache.CachedUser user = userDetailsCache.get(username);
+        if (user == null || !user.hasPassword()) {
+            user = loadFromDatabase(username);
+        }
+        return toUserDetails(user, user.password());
+    }
+
+    /**
+     * 令牌鉴权使用，只需启用状态，可直接使用不含密码的 Redis 副本；返回的 UserDetails 不携带密码哈希
+     */
+    public UserDetails loadUserForToken(String username) throws UsernameNotFoundException {
+        UserDetailsCache.CachedUser user = userDetailsCache.get(username);
+        if (user == null) {
+            user = loadFromDatabase(username);
+        }
+        return toUserDetails(user, "");
+    }
+
+    private UserDetailsCache.CachedUser loadFromDatabase(String username) {
+        UserDetailsCache.CachedUser user = userRepository.findByUsername(username)
+                .map(UserDetailsCache.CachedUser::from)
                 .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
+        userDetailsCache.put(user);
+        return user;
+    }
 
+    private UserDetails toUserDetails(UserDetailsCache.CachedUser user, String password) {
         return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
+                .username(user.username())
+                .password(password)
                 .authorities(new ArrayList<>())
                 .accountExpired(false)
                 .accountLocked(false)
                 .credentialsExpired(false)
-                .disabled(!user.getEnabled())
+                .disabled(Boolean.FALSE.equals(user.enabled()))
                 .build();
     }
-}
 
+    /**
+     * 登录成功且密码哈希强度低于当前配置时，由 DaoAuthenticationProvider 传入按新强度重新计算的哈希
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.findByUsername(user.getUsername()).ifPresent(entity -> {
+            entity.setPassword(newPassword);
+            userRepository.save(entity);
+        });
+        userDetailsCache.evict(user.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+}
@@ -2,15 +2,11 @@ package com.fitnex.service;
 
 import com.fitnex.entity.User;
 import com.fitnex.repository.UserRepository;
-import com.fitnex.repository.WorkoutRecordRepository;
-import com.fitnex.repository.NutritionRecordRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -21,13 +17,14 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final FileService fileService;
-    private final WorkoutRecordRepository workoutRecordRepository;
-    private final NutritionRecordRepository nutritionRecordRepository;
+    private final ActivityCounterStore activityCounterStore;
+    private final UserDetailsCache userDetailsCache;
 
     @Transactional
     public User updateProfile(Long userId, String username, String nickname) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
+        String oldUsername = user.getUsername();
 
         if (username != null && !username.isBlank()) {
             // 检查用户名是否已被其他用户使用
@@ -42,7 +39,11 @@ public class UserService {
             user.setNickname(nickname);
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        if (!oldUsername.equals(saved.getUsername())) {
+            userDetailsCache.evict(oldUsername, saved.getUsername());
+        }
+        return saved;
     }
 
     @Transactional
@@ -67,19 +68,8 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
 
         // 刷新会员等级
-        refreshMemberLevel(user);
-
-        // 计算当前积分和下一级所需积分
-        LocalDate today = LocalDate.now();
-        LocalDateTime last30Days = today.minusDays(30).atStartOfDay();
-        int workoutCount = workoutRecordRepository
-                .findByUserIdAndStartTimeBetween(user.getId(), last30Days, LocalDateTime.now())
-                .size();
-        int nutritionCount = nutritionRecordRepository
-                .findByUserIdAndRecordDateBetween(user.getId(), today.minusDays(30), today)
-                .size();
-        double currentPoints = workoutCount * 2.0 + nutritionCount * 0.5
-                + Optional.ofNullable(user.getTotalConsumption()).orElse(0.0) / 500.0;
+        ActivityCounterStore.ActivityCounts counts = activityCounterStore.getCounts(userId);
+        double currentPoints = refreshMemberLevel(user, counts);
 
         // 计算下一级所需积分
         double nextLevelPoints = getNextLevelPoints(user.getMemberLevel());
@@ -93,16 +83,12 @@ public class UserService {
         return memberInfo;
     }
 
-    private void refreshMemberLevel(User user) {
-        LocalDate today = LocalDate.now();
-        LocalDateTime last30Days = today.minusDays(30).atStartOfDay();
-        int workoutCount = workoutRecordRepository
-                .findByUserIdAndStartTimeBetween(user.getId(), last30Days, LocalDateTime.now())
-                .size();
-        int nutritionCount = nutritionRecordRepository
-                .findByUserIdAndRecordDateBetween(user.getId(), today.minusDays(30), today)
-                .size();
-        double compositeScore = workoutCount * 2.0 + nutritionCount * 0.5
+    /**
+     * 按近30天活跃度刷新会员等级，返回当前积分
+     */
+    private double refreshMemberLevel(User user, ActivityCounterStore.ActivityCounts counts) {
+        int workoutCount = counts.workoutCount();
+        double compositeScore = workoutCount * 2.0 + counts.nutritionCount() * 0.5
                 + Optional.ofNullable(user.getTotalConsumption()).orElse(0.0) / 500.0;
 
         User.MemberLevel level;
@@ -121,6 +107,7 @@ public class UserService {
         user.setMonthlyWorkoutCount(workoutCount);
         user.setMemberLevel(level);
         userRepository.save(user);
+        return compositeScore;
     }
 
     private double getNextLevelPoints(User.MemberLevel currentLevel) {
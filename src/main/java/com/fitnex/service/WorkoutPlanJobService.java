@@ -0,0 +1,109 @@
+package com.fitnex.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitnex.dto.WorkoutPlanJobDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+/**
+ * AI 训练计划异步生成任务：提交后立即返回任务 ID，任务状态保存在 Redis，任意节点均可查询
+ */
+@Service
+@RequiredArgsConstructor
+public class WorkoutPlanJobService {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final String REDIS_KEY_PREFIX = "fitnex:plan-job:";
+
+    private final WorkoutPlanService workoutPlanService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ai.plan-job.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    public WorkoutPlanJobDto submitGenerateJob(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        WorkoutPlanJobDto job = WorkoutPlanJobDto.builder()
+                .jobId(UUID.randomUUID().toString())
+                .userId(userId)
+                .status(STATUS_PENDING)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        saveJob(job);
+
+        try {
+            workoutPlanService.generateAIWorkoutPlanAsync(userId)
+                    .whenComplete((plan, error) -> {
+                        WorkoutPlanJobDto done = WorkoutPlanJobDto.builder()
+                                .jobId(job.getJobId())
+                                .userId(userId)
+                                .createdAt(job.getCreatedAt())
+                                .updatedAt(LocalDateTime.now())
+                                .build();
+                        if (error == null) {
+                            done.setStatus(STATUS_SUCCEEDED);
+                            done.setPlanId(plan.getId());
+                        } else {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            System.err.println("AI训练计划生成任务失败: " + cause.getMessage());
+                            done.setStatus(STATUS_FAILED);
+                            done.setError("生成训练计划失败: " + cause.getMessage());
+                        }
+                        saveJob(done);
+                    });
+        } catch (TaskRejectedException e) {
+            deleteJob(job.getJobId());
+            throw new RuntimeException("训练计划生成任务繁忙，请稍后再试", e);
+        }
+        return job;
+    }
+
+    /**
+     * 查询任务状态，任务不存在、已过期或不属于该用户时返回 null
+     */
+    public WorkoutPlanJobDto getJob(String jobId, Long userId) {
+        try {
+            String json = redisTemplate.opsForValue().get(REDIS_KEY_PREFIX + jobId);
+            if (json == null) {
+                return null;
+            }
+            WorkoutPlanJobDto job = objectMapper.readValue(json, WorkoutPlanJobDto.class);
+            return Objects.equals(job.getUserId(), userId) ? job : null;
+        } catch (Exception e) {
+            System.err.println("读取训练计划任务失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveJob(WorkoutPlanJobDto job) {
+        try {
+            redisTemplate.opsForValue().set(REDIS_KEY_PREFIX + job.getJobId(),
+                    objectMapper.writeValueAsString(job), Duration.ofSeconds(ttlSeconds));
+        } catch (Exception e) {
+            System.err.println("保存训练计划任务失败: " + e.getMessage());
+        }
+    }
+
+    private void deleteJob(String jobId) {
+        try {
+            redisTemplate.delete(REDIS_KEY_PREFIX + jobId);
+        } catch (Exception e) {
+            System.err.println("删除训练计划任务失败: " + e.getMessage());
+        }
+    }
+}
@@ -11,7 +11,9 @@ import com.fitnex.repository.UserRepository;
 import com.fitnex.repository.WorkoutPlanRepository;
 import com.fitnex.repository.WorkoutRecordRepository;
 import com.fitnex.service.ai.AIService;
+import com.fitnex.util.TransactionRunner;
 import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +23,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,6 +35,7 @@ public class WorkoutPlanService {
     private final UserRepository userRepository;
     private final HealthProfileRepository healthProfileRepository;
     private final AIService aiService;
+    private final TransactionRunner transactionRunner;
 
     public List<WorkoutPlan> getUserWorkoutPlans(Long userId) {
         return workoutPlanRepository.findByUserId(userId);
@@ -51,7 +55,6 @@ public class WorkoutPlanService {
         return workoutPlanRepository.save(plan);
     }
 
-    @Transactional
     public WorkoutPlan generateAIWorkoutPlan(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
@@ -59,6 +62,7 @@ public class WorkoutPlanService {
         HealthProfile profile = healthProfileRepository.findByUserId(userId).orElse(null);
 
         // 调用AI服务生成训练计划（如果AI不可用则退化为基于用户画像的本地策略）
+        // AI调用在事务外执行，避免等待AI期间占用数据库连接
         WorkoutPlan plan = aiService.generateWorkoutPlan(user, profile);
         plan.setUser(user);
         plan.setIsAiGenerated(true);
@@ -66,7 +70,15 @@ public class WorkoutPlanService {
         enrichPlanWithProfile(plan, profile);
         bindPlanItems(plan);
 
-        return workoutPlanRepository.save(plan);
+        return transactionRunner.execute("workout-plan-generate", () -> workoutPlanRepository.save(plan));
+    }
+
+    /**
+     * 在计划生成线程池中执行 AI 训练计划生成，线程池队列已满时调用方会收到 TaskRejectedException
+     */
+    @Async("planJobExecutor")
+    public CompletableFuture<WorkoutPlan> generateAIWorkoutPlanAsync(Long userId) {
+        return CompletableFuture.completedFuture(generateAIWorkoutPlan(userId));
     }
 
     @Transactional(readOnly = true)
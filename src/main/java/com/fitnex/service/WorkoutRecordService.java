@@ -23,6 +23,7 @@ public class WorkoutRecordService {
     private final WorkoutRecordRepository workoutRecordRepository;
     private final UserRepository userRepository;
     private final WorkoutPlanRepository workoutPlanRepository;
+    private final ActivityCounterStore activityCounterStore;
 
     public List<WorkoutRecord> getUserWorkoutRecords(Long userId) {
         return workoutRecordRepository.findByUserId(userId);
@@ -51,7 +52,9 @@ public class WorkoutRecordService {
             record.setDuration((int) durationSeconds);
         }
         
-        return workoutRecordRepository.save(record);
+        WorkoutRecord saved = workoutRecordRepository.save(record);
+        activityCounterStore.workoutCreated(userId, saved.getStartTime());
+        return saved;
     }
 
     @Transactional
@@ -79,7 +82,10 @@ public class WorkoutRecordService {
 
     @Transactional
     public void deleteWorkoutRecord(Long recordId) {
-        workoutRecordRepository.deleteById(recordId);
+        workoutRecordRepository.findById(recordId).ifPresent(record -> {
+            workoutRecordRepository.delete(record);
+            activityCounterStore.workoutDeleted(record.getUser().getId(), record.getStartTime());
+        });
     }
 
     @Transactional
@@ -124,7 +130,9 @@ public class WorkoutRecordService {
             record.setExerciseRecords(exerciseRecords);
         }
         
-        return workoutRecordRepository.save(record);
+        WorkoutRecord saved = workoutRecordRepository.save(record);
+        activityCounterStore.workoutCreated(userId, saved.getStartTime());
+        return saved;
     }
 
     @Transactional
@@ -1,68 +1,76 @@
 package com.fitnex.service.ai;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fitnex.entity.HealthProfile;
 import com.fitnex.entity.NutritionRecord;
 import com.fitnex.entity.User;
 import com.fitnex.entity.WorkoutPlan;
 import com.fitnex.entity.WorkoutPlanItem;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
-import okhttp3.*;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
+@RequiredArgsConstructor
 public class AIService {
 
-    // 讯飞星火配置
-    @Value("${ai.spark.api-key:}")
-    private String sparkApiKey;
-
-    @Value("${ai.spark.api-secret:}")
-    private String sparkApiSecret;
-
-    @Value("${ai.spark.app-id:}")
-    private String sparkAppId;
-
-    @Value("${ai.spark.base-url:wss://spark-api.cn-huabei-1.xf-yun.com/v2.1/image}")
-    private String sparkBaseUrl;
-
-    @Value("${ai.spark.timeout:30000}")
-    private int timeout;
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .pingInterval(30, TimeUnit.SECONDS)
-            .build();
+    private static final String AI_UNAVAILABLE = "AI服务暂时不可用，请稍后再试。";
+    private static final String AI_BUSY = "AI服务繁忙，请稍后再试。";
+    private static final String UNRECOGNIZED_FOOD = "未识别食物";
+
+    private static final String FITNESS_QA_SYSTEM_PROMPT = "你是一位经验丰富的健身教练和健康顾问，拥有丰富的运动科学、营养学和康复训练知识。你的回答应该：\n" +
+            "1. 专业准确：基于科学的运动原理和营养知识\n" +
+            "2. 具体实用：提供可操作的建议和方案\n" +
+            "3. 安全第一：强调正确的动作要领和注意事项\n" +
+            "4. 鼓励支持：用友好、鼓励的语气与用户交流\n" +
+            "5. 个性化：根据问题提供针对性的建议\n\n" +
+            "如果用户询问关于模型、AI身份或技术问题，请回答：您好，我是依托讯飞星火大模型的智能助手，为您提供健身和营养方面的咨询服务，你可以直接告诉我你的需求。\n\n" +
+            "现在请回答用户的问题：";
+
+    private final SparkClient sparkClient;
+    private final FoodRecognitionCache foodRecognitionCache;
+    private final FoodNutritionIndex foodNutritionIndex;
+    private final ImagePreprocessor imagePreprocessor;
+    private final SparkBulkhead sparkBulkhead;
+    private final SparkCircuitBreaker sparkCircuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final SparkMetrics sparkMetrics;
+    private final ConversationMemory conversationMemory;
+    private final SimilarQuestionCache similarQuestionCache;
+    private final PromptTemplates promptTemplates;
+    private final SparkHedger sparkHedger;
+
+    // 相同提示词的并发请求共享一次星火调用
+    private final SingleFlight<PromptKey, String> chatFlight = new SingleFlight<>();
 
     @PostConstruct
     public void init() {
-    }
-
-    @PreDestroy
-    public void cleanup() {
-        try {
-            httpClient.dispatcher().executorService().shutdown();
-        } catch (Exception e) {
-        }
+        FunctionCounter.builder("ai.spark.coalesced", chatFlight, SingleFlight::getDeduplicatedCount)
+                .description("被合并到进行中请求的星火文本调用次数")
+                .register(meterRegistry);
+        Gauge.builder("ai.spark.coalesced.in-flight", chatFlight, SingleFlight::getInFlightCount)
+                .description("进行中的去重星火文本调用数")
+                .register(meterRegistry);
     }
 
     public WorkoutPlan generateWorkoutPlan(User user, HealthProfile profile) {
         try {
             String prompt = buildWorkoutPlanPrompt(user, profile);
-            String response = callSparkChatAPI(prompt, null);
+            // 限流拒绝时抛出异常，直接走默认计划
+            String response = callSparkChatAPI(prompt, null, SparkPriority.BACKGROUND, SparkOperation.PLAN);
             WorkoutPlan plan = parseWorkoutPlanResponse(response);
             plan.setName("AI智能训练计划");
             plan.setDescription("基于您的健康档案生成的个性化训练计划");
@@ -74,234 +82,62 @@ public class AIService {
     }
 
     public NutritionRecord recognizeFoodFromImage(MultipartFile imageFile) {
-        try {
-            String base64Image = encodeImageToBase64(imageFile);
-            if (sparkApiKey != null && !sparkApiKey.isEmpty() &&
-                sparkApiSecret != null && !sparkApiSecret.isEmpty() &&
-                sparkAppId != null && !sparkAppId.isEmpty()) {
-                return recognizeFoodWithSpark(base64Image, imageFile.getContentType());
-            }
-            return createDefaultNutritionRecord();
-        } catch (Exception e) {
-            return createDefaultNutritionRecord();
-        }
+        return recognizeFoodFromImageAsync(imageFile).join();
     }
 
-    private NutritionRecord recognizeFoodWithSpark(String base64Image, String contentType) {
-        String authUrl = buildSparkAuthUrl();
-        String requestJson = buildSparkRequestJson(base64Image, contentType);
-
-        CountDownLatch latch = new CountDownLatch(1);
-        AtomicReference<String> responseRef = new AtomicReference<>();
-        AtomicReference<String> errorRef = new AtomicReference<>();
-        AtomicReference<WebSocket> webSocketRef = new AtomicReference<>();
-
-        Request request = new Request.Builder()
-                .url(authUrl)
-                .get()
-                .build();
-
-        WebSocket webSocket = httpClient.newWebSocket(request, new WebSocketListener() {
-            @Override
-            public void onOpen(WebSocket ws, Response response) {
-                webSocketRef.set(ws);
-                ws.send(requestJson);
-            }
-
-            @Override
-            public void onMessage(WebSocket ws, String message) {
-                try {
-                    Map<String, Object> resp = objectMapper.readValue(message, Map.class);
-                    if (resp.containsKey("payload")) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> payload = (Map<String, Object>) resp.get("payload");
-                        if (payload != null && payload.containsKey("choices")) {
-                            @SuppressWarnings("unchecked")
-                            List<Map<String, Object>> choices = (List<Map<String, Object>>) payload.get("choices");
-                            if (!choices.isEmpty()) {
-                                Map<String, Object> choice = choices.get(0);
-                                if (choice.containsKey("message")) {
-                                    @SuppressWarnings("unchecked")
-                                    Map<String, Object> msgObj = (Map<String, Object>) choice.get("message");
-                                    String content = (String) msgObj.get("content");
-                                    responseRef.set(content);
-                                }
-                            }
-                        }
-                    }
-                    if (resp.containsKey("header")) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> header = (Map<String, Object>) resp.get("header");
-                        if (header != null && "0".equals(header.get("code"))) {
-                            ws.close(1000, "completed");
-                        }
-                    }
-                } catch (Exception e) {
-                    errorRef.set("解析响应失败: " + e.getMessage());
-                }
-                latch.countDown();
-            }
-
-            @Override
-            public void onClosing(WebSocket ws, int code, String reason) {
-                latch.countDown();
-            }
-
-            @Override
-            public void onFailure(WebSocket ws, Throwable t, Response response) {
-                errorRef.set("WebSocket错误: " + t.getMessage());
-                latch.countDown();
-            }
-        });
-
+    /**
+     * 异步识别食物图片，失败时返回默认记录；相同图片内容直接命中缓存
+     */
+    public CompletableFuture<NutritionRecord> recognizeFoodFromImageAsync(MultipartFile imageFile) {
         try {
-            boolean completed = latch.await(timeout, TimeUnit.MILLISECONDS);
-            if (!completed) {
-                errorRef.set("等待响应超时");
+            if (!sparkClient.isConfigured()) {
+                return CompletableFuture.completedFuture(createDefaultNutritionRecord());
             }
-
-            if (errorRef.get() != null) {
-                System.err.println("讯飞API错误: " + errorRef.get());
-                return createDefaultNutritionRecord();
+            byte[] imageBytes = imageFile.getBytes();
+            String cacheKey = foodRecognitionCache.key(imageBytes);
+            NutritionRecord cached = foodRecognitionCache.get(cacheKey);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
             }
-
-            String aiResponse = responseRef.get();
-            if (aiResponse != null && !aiResponse.isEmpty()) {
-                return parseNutritionFromAIResponse(aiResponse);
-            }
-
-            return createDefaultNutritionRecord();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("讯飞API调用被中断: " + e.getMessage());
-            return createDefaultNutritionRecord();
-        } finally {
-            if (webSocketRef.get() != null) {
-                try {
-                    webSocketRef.get().close(1000, "finished");
-                } catch (Exception e) {
-                }
-            }
-        }
-    }
-
-    private String buildSparkAuthUrl() {
-        try {
-            String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
-            String signature = generateSparkSignature(timestamp);
-            StringBuilder url = new StringBuilder(sparkBaseUrl);
-            url.append("?authorization=").append(generateAuthorization(timestamp));
-            url.append("&X-Appid=").append(sparkAppId);
-            url.append("&X-CurTime=").append(timestamp);
-            url.append("&X-Param=").append(generateParam());
-            url.append("&X-CheckSum=").append(signature);
-            return url.toString();
-        } catch (Exception e) {
-            System.err.println("构建鉴权URL失败: " + e.getMessage());
-            return sparkBaseUrl;
-        }
-    }
-
-    private String generateSparkSignature(String timestamp) {
-        try {
-            String input = sparkApiKey + timestamp + sparkApiSecret;
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(input.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
+            String base64Image;
+            String contentType;
+            try {
+                base64Image = imagePreprocessor.toBase64Jpeg(imageBytes);
+                contentType = ImagePreprocessor.OUTPUT_CONTENT_TYPE;
+            } catch (Exception e) {
+                // 无法解码的格式按原图上传
+                base64Image = Base64.getEncoder().encodeToString(imageBytes);
+                contentType = imageFile.getContentType();
             }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            return "";
-        }
-    }
-
-    private String generateAuthorization(String timestamp) {
-        try {
-            String signature = generateSparkSignature(timestamp);
-            String authInfo = "api_key=\"" + sparkApiKey + "\", timestamp=\"" + timestamp + "\", signature=\"" + signature + "\"";
-            return Base64.getEncoder().encodeToString(authInfo.getBytes());
+            return recognizeFoodWithSpark(base64Image, contentType, cacheKey);
         } catch (Exception e) {
-            return "";
+            return CompletableFuture.completedFuture(createDefaultNutritionRecord());
         }
     }
 
-    private String generateParam() {
-        try {
-            Map<String, Object> param = new HashMap<>();
-            Map<String, Object> chat = new HashMap<>();
-            chat.put("domain", "image");
-            chat.put("temperature", 0.3);
-            chat.put("max_tokens", 500);
-            param.put("chat", chat);
-            return Base64.getEncoder().encodeToString(objectMapper.writeValueAsString(param).getBytes());
-        } catch (Exception e) {
-            return "";
-        }
-    }
-
-    private String buildSparkRequestJson(String base64Image, String contentType) {
-        try {
-            Map<String, Object> request = new HashMap<>();
-            Map<String, Object> header = new HashMap<>();
-            header.put("app_id", sparkAppId);
-            header.put("uid", UUID.randomUUID().toString());
-            request.put("header", header);
-
-            Map<String, Object> parameter = new HashMap<>();
-            Map<String, Object> chat = new HashMap<>();
-            chat.put("temperature", 0.3);
-            chat.put("max_tokens", 500);
-            parameter.put("chat", chat);
-            request.put("parameter", parameter);
-
-            Map<String, Object> payload = new HashMap<>();
-            Map<String, Object> message = new HashMap<>();
-            message.put("role", "user");
-            message.put("content", Arrays.asList(
-                    createTextContent("请识别这张图片中的食物，并返回JSON格式的营养信息。格式如下：{\"foodName\": \"食物名称\", \"quantity\": 数量(克), \"calories\": 卡路里, \"protein\": 蛋白质(克), \"carbs\": 碳水化合物(克), \"fat\": 脂肪(克), \"fiber\": 纤维(克), \"mealType\": \"BREAKFAST|LUNCH|DINNER|SNACK\"}。只返回JSON，不要其他文字。"),
-                    createImageContent(base64Image, contentType)
-            ));
-            payload.put("message", message);
-            request.put("payload", payload);
-
-            return objectMapper.writeValueAsString(request);
-        } catch (Exception e) {
-            return "{}";
-        }
-    }
-
-    private Map<String, Object> createTextContent(String text) {
-        Map<String, Object> content = new HashMap<>();
-        content.put("type", "text");
-        content.put("text", text);
-        return content;
-    }
-
-    private Map<String, Object> createImageContent(String base64Image, String contentType) {
-        Map<String, Object> content = new HashMap<>();
-        content.put("type", "image");
-        Map<String, Object> image = new HashMap<>();
-        String format = "jpeg";
-        if (contentType != null) {
-            if (contentType.toLowerCase().contains("png")) {
-                format = "png";
-            } else if (contentType.toLowerCase().contains("gif")) {
-                format = "gif";
-            } else if (contentType.toLowerCase().contains("webp")) {
-                format = "webp";
-            }
-        }
-        image.put("format", format);
-        image.put("image", base64Image);
-        content.put("image", image);
-        return content;
+    /**
+     * 是否为识别失败时返回的默认记录（含 AI 不可用、调用失败、回答中没有食物名）
+     */
+    public static boolean isUnrecognized(NutritionRecord record) {
+        return record == null || UNRECOGNIZED_FOOD.equals(record.getFoodName());
     }
 
-    private String encodeImageToBase64(MultipartFile imageFile) throws IOException {
-        byte[] imageBytes = imageFile.getBytes();
-        return Base64.getEncoder().encodeToString(imageBytes);
+    private CompletableFuture<NutritionRecord> recognizeFoodWithSpark(String base64Image, String contentType, String cacheKey) {
+        return callSpark(SparkPriority.NORMAL, () -> sparkClient.recognizeImage(base64Image, contentType))
+                .thenApply(aiResponse -> {
+                    NutritionRecord record = parseNutritionFromAIResponse(aiResponse);
+                    if (!UNRECOGNIZED_FOOD.equals(record.getFoodName())) {
+                        foodRecognitionCache.put(cacheKey, record);
+                    }
+                    return record;
+                })
+                .exceptionally(e -> {
+                    sparkMetrics.recordFallback(SparkOperation.IMAGE, SparkMetrics.fallbackReason(e));
+                    if (!SparkCircuitBreaker.isCircuitOpen(e)) {
+                        System.err.println("讯飞API错误: " + e.getMessage());
+                    }
+                    return createDefaultNutritionRecord();
+                });
     }
 
     private String encodeImageToBase64(String imageUrl) throws IOException {
@@ -339,87 +175,11 @@ public class AIService {
     private NutritionRecord parseNutritionFromAIResponse(String aiResponse) {
         NutritionRecord record = new NutritionRecord();
         record.setIsAiRecognized(true);
-        try {
-            String jsonStr = aiResponse.trim();
-            if (jsonStr.contains("```json")) {
-                jsonStr = jsonStr.substring(jsonStr.indexOf("```json") + 7);
-                jsonStr = jsonStr.substring(0, jsonStr.indexOf("```")).trim();
-            } else if (jsonStr.contains("```")) {
-                jsonStr = jsonStr.substring(jsonStr.indexOf("```") + 3);
-                jsonStr = jsonStr.substring(0, jsonStr.indexOf("```")).trim();
-            }
-            if (jsonStr.contains("\"foodName\"")) {
-                record.setFoodName(extractJsonValue(jsonStr, "foodName"));
-            }
-            if (jsonStr.contains("\"quantity\"")) {
-                String qty = extractJsonValue(jsonStr, "quantity");
-                if (qty != null && !qty.isEmpty()) {
-                    try {
-                        record.setQuantity(Double.parseDouble(qty));
-                        record.setUnit("克");
-                    } catch (NumberFormatException e) {
-                        record.setQuantity(100.0);
-                        record.setUnit("克");
-                    }
-                }
-            }
-            if (jsonStr.contains("\"calories\"")) {
-                String cal = extractJsonValue(jsonStr, "calories");
-                if (cal != null && !cal.isEmpty()) {
-                    try {
-                        record.setCalories(Integer.parseInt(cal));
-                    } catch (NumberFormatException e) {
-                        record.setCalories(0);
-                    }
-                }
-            }
-            if (jsonStr.contains("\"protein\"")) {
-                String prot = extractJsonValue(jsonStr, "protein");
-                if (prot != null && !prot.isEmpty()) {
-                    try {
-                        record.setProtein(Double.parseDouble(prot));
-                    } catch (NumberFormatException e) {
-                        record.setProtein(0.0);
-                    }
-                }
-            }
-            if (jsonStr.contains("\"carbs\"")) {
-                String carbs = extractJsonValue(jsonStr, "carbs");
-                if (carbs != null && !carbs.isEmpty()) {
-                    try {
-                        record.setCarbs(Double.parseDouble(carbs));
-                    } catch (NumberFormatException e) {
-                        record.setCarbs(0.0);
-                    }
-                }
-            }
-            if (jsonStr.contains("\"fat\"")) {
-                String fat = extractJsonValue(jsonStr, "fat");
-                if (fat != null && !fat.isEmpty()) {
-                    try {
-                        record.setFat(Double.parseDouble(fat));
-                    } catch (NumberFormatException e) {
-                        record.setFat(0.0);
-                    }
-                }
-            }
-            if (jsonStr.contains("\"fiber\"")) {
-                String fiber = extractJsonValue(jsonStr, "fiber");
-                if (fiber != null && !fiber.isEmpty()) {
-                    try {
-                        record.setFiber(Double.parseDouble(fiber));
-                    } catch (NumberFormatException e) {
-                        record.setFiber(0.0);
-                    }
-                }
-            }
-            if (jsonStr.contains("\"mealType\"")) {
-                record.setMealType(extractJsonValue(jsonStr, "mealType"));
-            }
-        } catch (Exception e) {
-        }
+        NutritionResponseParser.fill(record, aiResponse);
         if (record.getFoodName() == null || record.getFoodName().isEmpty()) {
-            record.setFoodName("未识别食物");
+            record.setFoodName(UNRECOGNIZED_FOOD);
+        } else {
+            applyOfflineNutrition(record);
         }
         if (record.getCalories() == null) {
             record.setCalories(0);
@@ -439,6 +199,32 @@ public class AIService {
         return record;
     }
 
+    /**
+     * 星火给出了食物名但热量缺失或与离线营养库相差三倍以上时，按重量用离线数据补全
+     */
+    private void applyOfflineNutrition(NutritionRecord record) {
+        FoodNutritionIndex.FoodNutrition food = foodNutritionIndex.match(record.getFoodName());
+        if (food == null) {
+            return;
+        }
+        double grams = record.getQuantity() != null && record.getQuantity() > 0 ? record.getQuantity() : 100.0;
+        double factor = grams / 100.0;
+        int expectedCalories = (int) Math.round(food.calories() * factor);
+        Integer calories = record.getCalories();
+        boolean missing = calories == null || calories <= 0;
+        boolean implausible = !missing && expectedCalories > 0
+                && (calories > expectedCalories * 3 || calories * 3 < expectedCalories);
+        if (missing || implausible) {
+            record.setCalories(expectedCalories);
+            record.setProtein(Math.round(food.protein() * factor * 10) / 10.0);
+            record.setCarbs(Math.round(food.carbs() * factor * 10) / 10.0);
+            record.setFat(Math.round(food.fat() * factor * 10) / 10.0);
+            record.setFiber(Math.round(food.fiber() * factor * 10) / 10.0);
+        } else if (record.getFiber() == null || record.getFiber() <= 0) {
+            record.setFiber(Math.round(food.fiber() * factor * 10) / 10.0);
+        }
+    }
+
     private String extractJsonValue(String json, String key) {
         try {
             String searchKey = "\"" + key + "\"";
@@ -475,7 +261,7 @@ public class AIService {
 
     private NutritionRecord createDefaultNutritionRecord() {
         NutritionRecord record = new NutritionRecord();
-        record.setFoodName("未识别食物");
+        record.setFoodName(UNRECOGNIZED_FOOD);
         record.setCalories(0);
         record.setProtein(0.0);
         record.setCarbs(0.0);
@@ -489,301 +275,213 @@ public class AIService {
     public String getNutritionAdvice(Long userId, HealthProfile profile,
                                      Integer dailyCalories, Integer targetCalories,
                                      Double totalProtein, Double totalCarbs, Double totalFat) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("你是一位专业的营养师和健康顾问。请根据以下用户信息提供个性化、详细且实用的饮食建议。\n\n");
-        prompt.append("【用户健康档案】\n");
+        return getNutritionAdviceAsync(userId, profile, dailyCalories, targetCalories,
+                totalProtein, totalCarbs, totalFat, Deadline.none()).join();
+    }
+
+    public CompletableFuture<String> getNutritionAdviceAsync(Long userId, HealthProfile profile,
+                                                             Integer dailyCalories, Integer targetCalories,
+                                                             Double totalProtein, Double totalCarbs, Double totalFat,
+                                                             Deadline deadline) {
+        Map<String, Object> values = new HashMap<>();
         if (profile != null) {
-            if (profile.getFitnessGoal() != null) {
-                prompt.append("- 健身目标：").append(profile.getFitnessGoal()).append("\n");
-            }
-            if (profile.getActivityLevel() != null) {
-                prompt.append("- 活动水平：").append(profile.getActivityLevel()).append("\n");
-            }
+            values.put("fitnessGoal", profile.getFitnessGoal());
+            values.put("activityLevel", profile.getActivityLevel());
             if (profile.getHeight() != null && profile.getWeight() != null) {
-                prompt.append("- 身高：").append(profile.getHeight()).append("cm，体重：").append(profile.getWeight()).append("kg\n");
+                values.put("height", profile.getHeight());
+                values.put("weight", profile.getWeight());
                 if (profile.getBmi() != null) {
-                    prompt.append("- BMI：").append(String.format("%.1f", profile.getBmi())).append("\n");
+                    values.put("bmi", PromptTemplate.oneDecimal(profile.getBmi()));
                 }
             }
-            if (profile.getTargetWeight() != null) {
-                prompt.append("- 目标体重：").append(profile.getTargetWeight()).append("kg\n");
-            }
-            if (profile.getDietaryRestrictions() != null && !profile.getDietaryRestrictions().isEmpty()) {
-                prompt.append("- 饮食限制：").append(profile.getDietaryRestrictions()).append("\n");
-            }
-            if (profile.getAllergies() != null && !profile.getAllergies().isEmpty()) {
-                prompt.append("- 过敏信息：").append(profile.getAllergies()).append("\n");
-            }
+            values.put("targetWeight", profile.getTargetWeight());
+            values.put("dietaryRestrictions", emptyToNull(profile.getDietaryRestrictions()));
+            values.put("allergies", emptyToNull(profile.getAllergies()));
         }
-        prompt.append("\n【今日营养摄入情况】\n");
-        prompt.append("- 已摄入卡路里：").append(dailyCalories != null ? dailyCalories : 0).append(" 卡\n");
+        values.put("dailyCalories", dailyCalories != null ? dailyCalories : 0);
         if (targetCalories != null) {
-            prompt.append("- 目标卡路里：").append(targetCalories).append(" 卡\n");
+            values.put("targetCalories", targetCalories);
             int remaining = targetCalories - (dailyCalories != null ? dailyCalories : 0);
             if (remaining > 0) {
-                prompt.append("- 剩余卡路里：").append(remaining).append(" 卡\n");
+                values.put("remainingCalories", remaining);
             } else if (remaining < 0) {
-                prompt.append("- 超出卡路里：").append(Math.abs(remaining)).append(" 卡（已超量）\n");
+                values.put("exceededCalories", Math.abs(remaining));
+            }
+            if (dailyCalories != null) {
+                values.put(dailyCalories > targetCalories ? "overLimit" : "withinLimit", "");
             }
         }
         if (totalProtein != null) {
-            prompt.append("- 蛋白质：").append(String.format("%.1f", totalProtein)).append("g\n");
+            values.put("protein", PromptTemplate.oneDecimal(totalProtein));
         }
         if (totalCarbs != null) {
-            prompt.append("- 碳水化合物：").append(String.format("%.1f", totalCarbs)).append("g\n");
+            values.put("carbs", PromptTemplate.oneDecimal(totalCarbs));
         }
         if (totalFat != null) {
-            prompt.append("- 脂肪：").append(String.format("%.1f", totalFat)).append("g\n");
+            values.put("fat", PromptTemplate.oneDecimal(totalFat));
         }
-        prompt.append("\n【请提供以下建议】\n");
-        prompt.append("1. 针对用户健身目标的个性化饮食建议（具体到每餐搭配）\n");
-        prompt.append("2. 今日营养摄入的详细评价（指出不足和优点）\n");
-        if (targetCalories != null && dailyCalories != null && dailyCalories > targetCalories) {
-            prompt.append("3. 卡路里超量的应对策略和调整建议\n");
-        } else if (targetCalories != null && dailyCalories != null) {
-            prompt.append("3. 剩余卡路里的合理分配建议\n");
-        }
-        prompt.append("4. 具体的食物推荐（列出3-5种适合的食物，考虑饮食限制和过敏信息）\n");
-        prompt.append("5. 营养搭配建议（蛋白质、碳水、脂肪的合理比例）\n");
-        prompt.append("6. 下一餐的建议（具体到食物种类和分量）\n");
-        prompt.append("\n请用中文回答，内容要专业、具体、实用，语气要友好鼓励。");
-        return callSparkChatAPI(prompt.toString(), null);
+        String prompt = promptTemplates.render(PromptTemplates.NUTRITION_ADVICE, values);
+        return callSparkChatAPIAsync(prompt, null, SparkPriority.NORMAL, SparkOperation.ADVICE, deadline);
     }
 
-    public String answerFitnessQuestion(String question) {
-        String systemPrompt = "你是一位经验丰富的健身教练和健康顾问，拥有丰富的运动科学、营养学和康复训练知识。你的回答应该：\n" +
-                "1. 专业准确：基于科学的运动原理和营养知识\n" +
-                "2. 具体实用：提供可操作的建议和方案\n" +
-                "3. 安全第一：强调正确的动作要领和注意事项\n" +
-                "4. 鼓励支持：用友好、鼓励的语气与用户交流\n" +
-                "5. 个性化：根据问题提供针对性的建议\n\n" +
-                "如果用户询问关于模型、AI身份或技术问题，请回答：您好，我是依托讯飞星火大模型的智能助手，为您提供健身和营养方面的咨询服务，你可以直接告诉我你的需求。\n\n" +
-                "现在请回答用户的问题：";
-        return callSparkChatAPI(question, systemPrompt);
+    public String answerFitnessQuestion(Long userId, String question) {
+        return answerFitnessQuestionAsync(userId, question, Deadline.none()).join();
     }
 
-    private String callSparkChatAPI(String userPrompt, String systemPrompt) {
-        String authUrl = buildSparkChatAuthUrl();
-        String requestJson = buildSparkChatRequestJson(systemPrompt, userPrompt);
-
-        CountDownLatch latch = new CountDownLatch(1);
-        AtomicReference<String> responseRef = new AtomicReference<>();
-        AtomicReference<String> errorRef = new AtomicReference<>();
-        AtomicReference<WebSocket> webSocketRef = new AtomicReference<>();
-
-        Request request = new Request.Builder()
-                .url(authUrl)
-                .get()
-                .build();
-
-        WebSocket webSocket = httpClient.newWebSocket(request, new WebSocketListener() {
-            @Override
-            public void onOpen(WebSocket ws, Response response) {
-                webSocketRef.set(ws);
-                ws.send(requestJson);
-            }
-
-            @Override
-            public void onMessage(WebSocket ws, String message) {
-                try {
-                    Map<String, Object> resp = objectMapper.readValue(message, Map.class);
-                    if (resp.containsKey("payload")) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> payload = (Map<String, Object>) resp.get("payload");
-                        if (payload != null && payload.containsKey("choices")) {
-                            @SuppressWarnings("unchecked")
-                            List<Map<String, Object>> choices = (List<Map<String, Object>>) payload.get("choices");
-                            if (!choices.isEmpty()) {
-                                Map<String, Object> choice = choices.get(0);
-                                if (choice.containsKey("message")) {
-                                    @SuppressWarnings("unchecked")
-                                    Map<String, Object> msgObj = (Map<String, Object>) choice.get("message");
-                                    String content = (String) msgObj.get("content");
-                                    responseRef.set(content);
-                                }
-                            }
-                        }
+    /**
+     * 多轮问答：携带该用户最近的会话历史，成功回答后追加到会话记忆，降级回答不记录。
+     * 没有上下文的首轮提问先查相似问题缓存。
+     */
+    public CompletableFuture<String> answerFitnessQuestionAsync(Long userId, String question, Deadline deadline) {
+        List<ConversationMemory.Turn> history = conversationMemory.history(userId, question);
+        if (history.isEmpty()) {
+            String cached = similarQuestionCache.get(question);
+            if (cached != null) {
+                conversationMemory.append(userId, question, cached);
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        return requestSparkChat(question, FITNESS_QA_SYSTEM_PROMPT, history,
+                        SparkPriority.INTERACTIVE, SparkOperation.CHAT, deadline)
+                .thenApply(answer -> {
+                    if (history.isEmpty()) {
+                        similarQuestionCache.put(question, answer);
                     }
-                    if (resp.containsKey("header")) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> header = (Map<String, Object>) resp.get("header");
-                        if (header != null && "0".equals(header.get("code"))) {
-                            ws.close(1000, "completed");
-                        }
-                    }
-                } catch (Exception e) {
-                    errorRef.set("解析响应失败: " + e.getMessage());
-                }
-                latch.countDown();
-            }
-
-            @Override
-            public void onClosing(WebSocket ws, int code, String reason) {
-                latch.countDown();
-            }
+                    conversationMemory.append(userId, question, answer);
+                    return answer;
+                })
+                .exceptionally(e -> chatFallback(SparkOperation.CHAT, e));
+    }
 
-            @Override
-            public void onFailure(WebSocket ws, Throwable t, Response response) {
-                errorRef.set("WebSocket错误: " + t.getMessage());
-                latch.countDown();
+    /**
+     * 流式多轮问答，每帧回答内容到达即回调 frameListener
+     */
+    public CompletableFuture<String> streamFitnessQuestion(Long userId, String question, Deadline deadline,
+                                                           Consumer<String> frameListener) {
+        List<ConversationMemory.Turn> history = conversationMemory.history(userId, question);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<CompletableFuture<String>> upstream = new AtomicReference<>();
+        // 已推送给客户端的帧无法撤回，流式问答不做对冲
+        CompletableFuture<String> spark = callSpark(SparkPriority.INTERACTIVE, deadline, () -> {
+            CompletableFuture<String> call = sparkClient.chat(SparkOperation.CHAT, FITNESS_QA_SYSTEM_PROMPT,
+                    history, question, deadline, frameListener);
+            upstream.set(call);
+            if (cancelled.get()) {
+                call.cancel(true);
+            }
+            return call;
+        });
+        CompletableFuture<String> result = spark
+                .thenApply(answer -> {
+                    conversationMemory.append(userId, question, answer);
+                    return answer;
+                })
+                .exceptionally(e -> chatFallback(SparkOperation.CHAT, e));
+        // 调用方取消（客户端断开）时连带取消排队中的任务或进行中的 WebSocket，释放并发名额
+        result.whenComplete((answer, error) -> {
+            if (result.isCancelled()) {
+                cancelled.set(true);
+                spark.cancel(true);
+                CompletableFuture<String> call = upstream.get();
+                if (call != null) {
+                    call.cancel(true);
+                }
             }
         });
+        return result;
+    }
 
+    public void clearConversation(Long userId) {
+        conversationMemory.clear(userId);
+    }
+
+    private String callSparkChatAPI(String userPrompt, String systemPrompt, SparkPriority priority,
+                                    SparkOperation operation) {
         try {
-            boolean completed = latch.await(timeout, TimeUnit.MILLISECONDS);
-            if (!completed) {
-                errorRef.set("等待响应超时");
-            }
-            if (errorRef.get() != null) {
-                System.err.println("讯飞文本API错误: " + errorRef.get());
-                return "AI服务暂时不可用，请稍后再试。";
-            }
-            return responseRef.get() != null ? responseRef.get() : "AI服务暂时不可用，请稍后再试。";
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("讯飞文本API调用被中断: " + e.getMessage());
-            return "AI服务调用被中断，请稍后再试。";
-        } finally {
-            if (webSocketRef.get() != null) {
-                try {
-                    webSocketRef.get().close(1000, "finished");
-                } catch (Exception e) {
-                }
+            return requestSparkChat(userPrompt, systemPrompt, Collections.emptyList(), priority, operation,
+                    Deadline.none()).join();
+        } catch (CompletionException e) {
+            sparkMetrics.recordFallback(operation, SparkMetrics.fallbackReason(e));
+            if (SparkBulkhead.isRejected(e)) {
+                throw e;
             }
+            System.err.println("讯飞文本API错误: " + e.getMessage());
+            return AI_UNAVAILABLE;
         }
     }
 
-    private String buildSparkChatAuthUrl() {
-        try {
-            String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
-            String signature = generateSparkSignature(timestamp);
-            String chatUrl = sparkBaseUrl.replace("/v2.1/image", "/v2.1/chat");
-            StringBuilder url = new StringBuilder(chatUrl);
-            url.append("?authorization=").append(generateAuthorization(timestamp));
-            url.append("&X-Appid=").append(sparkAppId);
-            url.append("&X-CurTime=").append(timestamp);
-            url.append("&X-Param=").append(generateChatParam());
-            url.append("&X-CheckSum=").append(signature);
-            return url.toString();
-        } catch (Exception e) {
-            return sparkBaseUrl.replace("/v2.1/image", "/v2.1/chat");
-        }
+    private CompletableFuture<String> callSparkChatAPIAsync(String userPrompt, String systemPrompt, SparkPriority priority,
+                                                            SparkOperation operation, Deadline deadline) {
+        return requestSparkChat(userPrompt, systemPrompt, Collections.emptyList(), priority, operation, deadline)
+                .exceptionally(e -> chatFallback(operation, e));
     }
 
-    private String generateChatParam() {
-        try {
-            Map<String, Object> param = new HashMap<>();
-            Map<String, Object> chat = new HashMap<>();
-            chat.put("domain", "general");
-            chat.put("temperature", 0.7);
-            chat.put("max_tokens", 2000);
-            param.put("chat", chat);
-            return Base64.getEncoder().encodeToString(objectMapper.writeValueAsString(param).getBytes());
-        } catch (Exception e) {
-            return "";
+    /**
+     * 文本调用：相同提示词合并，经过并发隔离和熔断器，首帧迟迟不到时发起对冲请求
+     */
+    private CompletableFuture<String> requestSparkChat(String userPrompt, String systemPrompt,
+                                                       List<ConversationMemory.Turn> history, SparkPriority priority,
+                                                       SparkOperation operation, Deadline deadline) {
+        return chatFlight.execute(new PromptKey(systemPrompt, history, userPrompt),
+                () -> callSpark(priority, deadline, () -> sparkHedger.execute(operation, deadline,
+                        frameListener -> sparkClient.chat(operation, systemPrompt, history, userPrompt,
+                                deadline, frameListener))));
+    }
+
+    /**
+     * 所有星火调用统一经过并发隔离和熔断器
+     */
+    private <T> CompletableFuture<T> callSpark(SparkPriority priority, Supplier<CompletableFuture<T>> call) {
+        return callSpark(priority, Deadline.none(), call);
+    }
+
+    /**
+     * 截止时间已过的请求不再占用并发名额，直接按超时降级
+     */
+    private <T> CompletableFuture<T> callSpark(SparkPriority priority, Deadline deadline, Supplier<CompletableFuture<T>> call) {
+        if (deadline.isExpired()) {
+            return CompletableFuture.failedFuture(new DeadlineExceededException());
         }
+        return sparkBulkhead.submit(priority, () -> sparkCircuitBreaker.execute(call));
     }
 
-    private String buildSparkChatRequestJson(String systemPrompt, String userPrompt) {
-        try {
-            Map<String, Object> request = new HashMap<>();
-            Map<String, Object> header = new HashMap<>();
-            header.put("app_id", sparkAppId);
-            header.put("uid", UUID.randomUUID().toString());
-            request.put("header", header);
-
-            Map<String, Object> parameter = new HashMap<>();
-            Map<String, Object> chat = new HashMap<>();
-            chat.put("domain", "general");
-            chat.put("temperature", 0.7);
-            chat.put("max_tokens", 2000);
-            parameter.put("chat", chat);
-            request.put("parameter", parameter);
-
-            Map<String, Object> payload = new HashMap<>();
-            List<Map<String, Object>> messages = new ArrayList<>();
-            if (systemPrompt != null && !systemPrompt.isEmpty()) {
-                Map<String, Object> systemMsg = new HashMap<>();
-                systemMsg.put("role", "system");
-                systemMsg.put("content", systemPrompt);
-                messages.add(systemMsg);
-            }
-            Map<String, Object> userMsg = new HashMap<>();
-            userMsg.put("role", "user");
-            userMsg.put("content", userPrompt);
-            messages.add(userMsg);
-            payload.put("message", messages);
-            request.put("payload", payload);
-
-            return objectMapper.writeValueAsString(request);
-        } catch (Exception e) {
-            return "{}";
+    private String chatFallback(SparkOperation operation, Throwable e) {
+        sparkMetrics.recordFallback(operation, SparkMetrics.fallbackReason(e));
+        if (SparkCircuitBreaker.isCircuitOpen(e)) {
+            return AI_UNAVAILABLE;
         }
+        if (SparkBulkhead.isRejected(e)) {
+            return AI_BUSY;
+        }
+        System.err.println("讯飞文本API错误: " + e.getMessage());
+        return AI_UNAVAILABLE;
     }
 
     private String buildWorkoutPlanPrompt(User user, HealthProfile profile) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("你是一位专业的健身教练和运动科学专家。请根据以下用户信息，生成一个详细、科学、可执行的个性化健身训练计划。\n\n");
-        prompt.append("【用户基本信息】\n");
-        prompt.append("- 用户名：").append(user.getUsername()).append("\n");
+        Map<String, Object> values = new HashMap<>();
+        values.put("username", user.getUsername());
         if (profile != null) {
-            prompt.append("\n【健康档案】\n");
-            if (profile.getFitnessGoal() != null) {
-                prompt.append("- 健身目标：").append(profile.getFitnessGoal()).append("\n");
-            }
-            if (profile.getActivityLevel() != null) {
-                prompt.append("- 活动水平：").append(profile.getActivityLevel()).append("\n");
-            }
+            values.put("hasProfile", "");
+            values.put("fitnessGoal", profile.getFitnessGoal());
+            values.put("activityLevel", profile.getActivityLevel());
             if (profile.getHeight() != null && profile.getWeight() != null) {
-                prompt.append("- 身高：").append(profile.getHeight()).append("cm\n");
-                prompt.append("- 体重：").append(profile.getWeight()).append("kg\n");
+                values.put("height", profile.getHeight());
+                values.put("weight", profile.getWeight());
                 if (profile.getBmi() != null) {
-                    prompt.append("- BMI：").append(String.format("%.1f", profile.getBmi())).append("\n");
+                    values.put("bmi", PromptTemplate.oneDecimal(profile.getBmi()));
                 }
             }
-            if (profile.getTargetWeight() != null) {
-                prompt.append("- 目标体重：").append(profile.getTargetWeight()).append("kg\n");
-            }
+            values.put("targetWeight", profile.getTargetWeight());
             if (profile.getBodyFat() != null) {
-                prompt.append("- 体脂率：").append(String.format("%.1f", profile.getBodyFat())).append("%\n");
-            }
-            if (profile.getMedicalHistory() != null && !profile.getMedicalHistory().isEmpty()) {
-                prompt.append("- 病史：").append(profile.getMedicalHistory()).append("\n");
+                values.put("bodyFat", PromptTemplate.oneDecimal(profile.getBodyFat()));
             }
+            values.put("medicalHistory", emptyToNull(profile.getMedicalHistory()));
         }
-        prompt.append("\n【请生成训练计划要求】\n");
-        prompt.append("1. 计划时长：4周（28天）\n");
-        prompt.append("2. 训练频率：根据用户活动水平合理设置（每周3-5次）\n");
-        prompt.append("3. 训练内容：\n");
-        prompt.append("   - 针对用户健身目标设计（减脂/增肌/塑形/健康）\n");
-        prompt.append("   - 包含有氧运动和力量训练的科学搭配\n");
-        prompt.append("   - 每周的训练安排要循序渐进\n");
-        prompt.append("   - 每个训练日包含具体的运动项目、组数、次数、重量、时长、休息时间\n");
-        prompt.append("4. 难度设置：根据用户活动水平设置合适的难度（初级/中级/高级）\n");
-        prompt.append("5. 安全考虑：考虑用户的健康状况，避免高风险动作\n");
-        prompt.append("\n请以JSON格式返回训练计划，格式如下：\n");
-        prompt.append("{\n");
-        prompt.append("  \"duration\": 28,\n");
-        prompt.append("  \"frequency\": 4,\n");
-        prompt.append("  \"difficulty\": \"中级\",\n");
-        prompt.append("  \"goal\": \"减脂\",\n");
-        prompt.append("  \"description\": \"计划描述\",\n");
-        prompt.append("  \"planItems\": [\n");
-        prompt.append("    {\n");
-        prompt.append("      \"dayOfWeek\": 1,\n");
-        prompt.append("      \"exerciseName\": \"运动名称\",\n");
-        prompt.append("      \"exerciseType\": \"力量/有氧/混合\",\n");
-        prompt.append("      \"sets\": 3,\n");
-        prompt.append("      \"reps\": 12,\n");
-        prompt.append("      \"weight\": 10.0,\n");
-        prompt.append("      \"duration\": 1800,\n");
-        prompt.append("      \"restTime\": 60,\n");
-        prompt.append("      \"instructions\": \"动作说明\"\n");
-        prompt.append("    }\n");
-        prompt.append("  ]\n");
-        prompt.append("}\n");
-        prompt.append("\n如果无法返回JSON，请提供详细的文字描述，我会据此生成计划。");
-        return prompt.toString();
+        return promptTemplates.render(PromptTemplates.WORKOUT_PLAN, values);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
     }
 
     private WorkoutPlan parseWorkoutPlanResponse(String response) {
@@ -903,4 +601,7 @@ public class AIService {
         plan.setIsAiGenerated(false);
         return plan;
     }
+
+    private record PromptKey(String systemPrompt, List<ConversationMemory.Turn> history, String userPrompt) {
+    }
 }
@@ -0,0 +1,165 @@
+package com.fitnex.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 健身问答的多轮会话记忆：每个用户一个 Redis 列表作为环形缓冲区，只保留最近 max-turns 轮，
+ * 单轮内容按字符截断，闲置超过 idle-ttl-seconds 自动过期。组装提示词前按 token 预算从最近一轮往前截取。
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversationMemory {
+
+    private static final String REDIS_KEY_PREFIX = "fitnex:conversation:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${ai.conversation.max-turns:10}")
+    private int maxTurns;
+
+    @Value("${ai.conversation.max-turn-chars:1000}")
+    private int maxTurnChars;
+
+    @Value("${ai.conversation.token-budget:2000}")
+    private int tokenBudget;
+
+    @Value("${ai.conversation.idle-ttl-seconds:1800}")
+    private long idleTtlSeconds;
+
+    private DistributionSummary historyTurns;
+    private DistributionSummary historyTokens;
+
+    @PostConstruct
+    public void init() {
+        historyTurns = DistributionSummary.builder("ai.conversation.history.turns")
+                .description("随问题一起发送的历史轮数")
+                .register(meterRegistry);
+        historyTokens = DistributionSummary.builder("ai.conversation.history.tokens")
+                .description("随问题一起发送的历史内容估算 token 数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 取出本轮提问可携带的历史，按时间正序；历史与问题合计不超过 token 预算
+     */
+    public List<Turn> history(Long userId, String question) {
+        if (userId == null) {
+            return Collections.emptyList();
+        }
+        List<String> stored;
+        try {
+            stored = redisTemplate.opsForList().range(REDIS_KEY_PREFIX + userId, 0, -1);
+        } catch (Exception e) {
+            System.err.println("读取会话记忆失败: " + e.getMessage());
+            return Collections.emptyList();
+        }
+        if (stored == null || stored.isEmpty()) {
+            historyTurns.record(0);
+            historyTokens.record(0);
+            return Collections.emptyList();
+        }
+
+        int remaining = tokenBudget - estimateTokens(question);
+        int used = 0;
+        List<Turn> turns = new ArrayList<>();
+        for (int i = stored.size() - 1; i >= 0; i--) {
+            try {
+                Turn turn = objectMapper.readValue(stored.get(i), Turn.class);
+                int tokens = estimateTokens(turn.question()) + estimateTokens(turn.answer());
+                if (used + tokens > remaining) {
+                    break;
+                }
+                used += tokens;
+                turns.add(turn);
+            } catch (Exception e) {
+                System.err.println("解析会话记忆失败: " + e.getMessage());
+            }
+        }
+        Collections.reverse(turns);
+        historyTurns.record(turns.size());
+        historyTokens.record(used);
+        return turns;
+    }
+
+    /**
+     * 追加一轮问答，超出 max-turns 的最早一轮被挤出，并刷新闲置过期时间
+     */
+    public void append(Long userId, String question, String answer) {
+        if (userId == null) {
+            return;
+        }
+        String key = REDIS_KEY_PREFIX + userId;
+        try {
+            String json = objectMapper.writeValueAsString(new Turn(truncate(question), truncate(answer)));
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.opsForList().rightPush(key, json);
+                    ops.opsForList().trim(key, -maxTurns, -1);
+                    ops.expire(key, Duration.ofSeconds(idleTtlSeconds));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("保存会话记忆失败: " + e.getMessage());
+        }
+    }
+
+    public void clear(Long userId) {
+        try {
+            redisTemplate.delete(REDIS_KEY_PREFIX + userId);
+        } catch (Exception e) {
+            System.err.println("清除会话记忆失败: " + e.getMessage());
+        }
+    }
+
+    private String truncate(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.length() > maxTurnChars ? text.substring(0, maxTurnChars) : text;
+    }
+
+    /**
+     * 粗略估算 token 数：中文等非 ASCII 字符按 1 个计，ASCII 字符按 4 个计 1 个
+     */
+    static int estimateTokens(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 128) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return other + (ascii + 3) / 4;
+    }
+
+    /**
+     * 一轮问答
+     */
+    public record Turn(String question, String answer) {
+    }
+}
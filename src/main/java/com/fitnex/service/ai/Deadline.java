@@ -0,0 +1,29 @@
+package com.fitnex.service.ai;
+
+/**
+ * 请求截止时间：由控制器根据调用方剩余预算创建并一路传到星火调用，
+ * 星火超时取配置超时与剩余预算中的较小值
+ */
+public record Deadline(long expiresAtMillis) {
+
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    public static Deadline after(long millis) {
+        return new Deadline(System.currentTimeMillis() + Math.max(0, millis));
+    }
+
+    /**
+     * 不限制截止时间，仅受 ai.spark.timeout 约束
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    public long remainingMillis() {
+        return expiresAtMillis == Long.MAX_VALUE ? Long.MAX_VALUE : expiresAtMillis - System.currentTimeMillis();
+    }
+
+    public boolean isExpired() {
+        return remainingMillis() <= 0;
+    }
+}
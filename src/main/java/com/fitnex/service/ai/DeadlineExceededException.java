@@ -0,0 +1,24 @@
+package com.fitnex.service.ai;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 调用方的截止时间已到：属于调用方自身的时间预算，不计入熔断器的星火失败统计
+ */
+public class DeadlineExceededException extends TimeoutException {
+
+    public DeadlineExceededException() {
+        super("请求已超过截止时间");
+    }
+
+    public static boolean isDeadlineExceeded(Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof DeadlineExceededException) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+}
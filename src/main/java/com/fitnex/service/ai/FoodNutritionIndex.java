@@ -0,0 +1,181 @@
+package com.fitnex.service.ai;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 离线食物营养库：启动时加载内置数据集，按中文名、别名、全拼和拼音首字母建前缀树。
+ * 每个节点预先保存前若干条候选，搜索补全只需沿前缀走一遍；识别时用于补全或校验营养数据。
+ */
+@Component
+public class FoodNutritionIndex {
+
+    private static final String DATASET = "data/food_nutrition.csv";
+    private static final int MAX_SUGGESTIONS = 10;
+
+    private final TrieNode root = new TrieNode();
+    private final List<FoodNutrition> foods = new ArrayList<>();
+
+    @PostConstruct
+    public void load() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(DATASET).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length < 8) {
+                    System.err.println("食物营养数据格式错误: " + line);
+                    continue;
+                }
+                String[] syllables = fields[2].trim().split("\\s+");
+                FoodNutrition food;
+                try {
+                    food = new FoodNutrition(fields[0].trim(), String.join("", syllables),
+                            Double.parseDouble(fields[3].trim()), Double.parseDouble(fields[4].trim()),
+                            Double.parseDouble(fields[5].trim()), Double.parseDouble(fields[6].trim()),
+                            Double.parseDouble(fields[7].trim()));
+                } catch (NumberFormatException e) {
+                    System.err.println("食物营养数据数值错误，已跳过: " + line);
+                    continue;
+                }
+                int id = foods.size();
+                foods.add(food);
+
+                insert(food.name(), id, true);
+                for (String alias : fields[1].split("/")) {
+                    if (!alias.isBlank()) {
+                        insert(alias.trim(), id, true);
+                    }
+                }
+                insert(food.pinyin(), id, false);
+                StringBuilder initials = new StringBuilder();
+                for (String syllable : syllables) {
+                    if (!syllable.isEmpty()) {
+                        initials.append(syllable.charAt(0));
+                    }
+                }
+                insert(initials.toString(), id, false);
+            }
+        } catch (IOException e) {
+            System.err.println("加载食物营养数据失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按中文名、别名或拼音（全拼、首字母）前缀搜索
+     */
+    public List<FoodNutrition> search(String prefix, int limit) {
+        TrieNode node = walk(normalize(prefix));
+        if (node == null || node.suggestions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<FoodNutrition> result = new ArrayList<>(Math.min(limit, node.suggestions.size()));
+        for (int i = 0; i < node.suggestions.size() && i < limit; i++) {
+            result.add(foods.get(node.suggestions.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * 按食物名匹配：优先完全匹配，否则取名称中包含的最长已知食物名（如"一碗米饭"匹配"米饭"）
+     */
+    public FoodNutrition match(String foodName) {
+        String key = normalize(foodName);
+        if (key.isEmpty()) {
+            return null;
+        }
+        TrieNode exact = walk(key);
+        if (exact != null && exact.food >= 0) {
+            return foods.get(exact.food);
+        }
+
+        int bestFood = -1;
+        int bestLength = 1;
+        for (int start = 0; start < key.length() - bestLength; start++) {
+            TrieNode node = root;
+            for (int i = start; i < key.length(); i++) {
+                node = node.children.get(key.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                int length = i - start + 1;
+                if (node.food >= 0 && length > bestLength) {
+                    bestFood = node.food;
+                    bestLength = length;
+                }
+            }
+        }
+        return bestFood >= 0 ? foods.get(bestFood) : null;
+    }
+
+    private void insert(String key, int id, boolean matchable) {
+        TrieNode node = root;
+        String normalized = normalize(key);
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.children.computeIfAbsent(normalized.charAt(i), c -> new TrieNode());
+            node.suggest(id);
+        }
+        if (matchable && node.food < 0) {
+            node.food = id;
+        }
+    }
+
+    private TrieNode walk(String key) {
+        if (key.isEmpty()) {
+            return null;
+        }
+        TrieNode node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        return node;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 每100克可食部的营养成分
+     */
+    public record FoodNutrition(String name, String pinyin, double calories, double protein,
+                                double carbs, double fat, double fiber) {
+    }
+
+    private static final class TrieNode {
+
+        private final Map<Character, TrieNode> children = new HashMap<>(4);
+        private final List<Integer> suggestions = new ArrayList<>(2);
+        private int food = -1;
+
+        void suggest(int id) {
+            if (suggestions.size() < MAX_SUGGESTIONS && !suggestions.contains(id)) {
+                suggestions.add(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.fitnex.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitnex.entity.NutritionRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 食物图片识别结果缓存：按图片内容 SHA-256 命中，本地 LRU + Redis 两级，均带过期时间。
+ * 命中时返回新的 NutritionRecord 副本，调用方可以放心修改后落库。
+ */
+@Component
+@RequiredArgsConstructor
+public class FoodRecognitionCache {
+
+    private static final String REDIS_KEY_PREFIX = "fitnex:food-recognition:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${ai.recognition-cache.max-size:1000}")
+    private int maxSize;
+
+    @Value("${ai.recognition-cache.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${ai.recognition-cache.redis-enabled:true}")
+    private boolean redisEnabled;
+
+    private final Map<String, LocalEntry> localCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LocalEntry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    public String key(byte[] imageBytes) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(imageBytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public NutritionRecord get(String key) {
+        CachedNutrition cached = getLocal(key);
+        if (cached == null && redisEnabled) {
+            try {
+                String json = redisTemplate.opsForValue().get(REDIS_KEY_PREFIX + key);
+                if (json != null) {
+                    cached = objectMapper.readValue(json, CachedNutrition.class);
+                    putLocal(key, cached);
+                }
+            } catch (Exception e) {
+                System.err.println("读取识别缓存失败: " + e.getMessage());
+            }
+        }
+        return cached != null ? cached.toRecord() : null;
+    }
+
+    public void put(String key, NutritionRecord record) {
+        CachedNutrition cached = CachedNutrition.from(record);
+        putLocal(key, cached);
+        if (redisEnabled) {
+            try {
+                redisTemplate.opsForValue().set(REDIS_KEY_PREFIX + key,
+                        objectMapper.writeValueAsString(cached), Duration.ofSeconds(ttlSeconds));
+            } catch (Exception e) {
+                System.err.println("写入识别缓存失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private CachedNutrition getLocal(String key) {
+        synchronized (localCache) {
+            LocalEntry entry = localCache.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt() < System.currentTimeMillis()) {
+                localCache.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private void putLocal(String key, CachedNutrition value) {
+        synchronized (localCache) {
+            localCache.put(key, new LocalEntry(value, System.currentTimeMillis() + ttlSeconds * 1000));
+        }
+    }
+
+    private record LocalEntry(CachedNutrition value, long expireAt) {
+    }
+
+    record CachedNutrition(String foodName, Double quantity, String unit, Integer calories,
+                           Double protein, Double carbs, Double fat, Double fiber, String mealType) {
+
+        static CachedNutrition from(NutritionRecord record) {
+            return new CachedNutrition(record.getFoodName(), record.getQuantity(), record.getUnit(),
+                    record.getCalories(), record.getProtein(), record.getCarbs(), record.getFat(),
+                    record.getFiber(), record.getMealType());
+        }
+
+        NutritionRecord toRecord() {
+            NutritionRecord record = new NutritionRecord();
+            record.setFoodName(foodName);
+            record.setQuantity(quantity);
+            record.setUnit(unit);
+            record.setCalories(calories);
+            record.setProtein(protein);
+            record.setCarbs(carbs);
+            record.setFat(fat);
+            record.setFiber(fiber);
+            record.setMealType(mealType);
+            record.setIsAiRecognized(true);
+            return record;
+        }
+    }
+}
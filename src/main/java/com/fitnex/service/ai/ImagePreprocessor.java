@@ -0,0 +1,75 @@
+package com.fitnex.service.ai;
+
+import net.coobird.thumbnailator.Thumbnails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+
+/**
+ * 上传星火前的图片预处理：按最长边缩放并统一转为 JPEG，编码时直接写入 Base64 流，
+ * 避免原图及其多份完整拷贝常驻堆内存。
+ */
+@Component
+public class ImagePreprocessor {
+
+    public static final String OUTPUT_CONTENT_TYPE = "image/jpeg";
+
+    @Value("${ai.image.max-edge:1024}")
+    private int maxEdge;
+
+    @Value("${ai.image.jpeg-quality:0.8}")
+    private double jpegQuality;
+
+    /**
+     * 缩放并重新编码为 JPEG，返回 Base64 字符串；图片无法解码时抛出 IOException
+     */
+    public String toBase64Jpeg(byte[] imageBytes) throws IOException {
+        int[] size = readSize(imageBytes);
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(size[0], size[1]));
+
+        // JPEG 编码后体积通常远小于原图，按原图 1/4 预估 Base64 缓冲区
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(8192, imageBytes.length / 4));
+        try (OutputStream base64Out = Base64.getEncoder().wrap(out)) {
+            Thumbnails.of(new ByteArrayInputStream(imageBytes))
+                    .scale(scale)
+                    .imageType(BufferedImage.TYPE_INT_RGB)
+                    .outputFormat("jpg")
+                    .outputQuality(jpegQuality)
+                    .toOutputStream(base64Out);
+        }
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 只读取图片头获取宽高，不解码像素
+     */
+    private int[] readSize(byte[] imageBytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes))) {
+            if (input == null) {
+                throw new IOException("无法读取图片");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("不支持的图片格式");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
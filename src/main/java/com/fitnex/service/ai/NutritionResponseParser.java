@@ -0,0 +1,104 @@
+package com.fitnex.service.ai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fitnex.entity.NutritionRecord;
+
+import java.io.IOException;
+
+/**
+ * 从AI回答中提取营养 JSON：定位 ``` 代码块（或第一个对象）后用流式解析器一次扫描填充 NutritionRecord。
+ * 解析中途出错时保留已读取的字段。
+ */
+public final class NutritionResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .build();
+
+    private NutritionResponseParser() {
+    }
+
+    public static void fill(NutritionRecord record, String aiResponse) {
+        if (aiResponse == null) {
+            return;
+        }
+        int start = 0;
+        int end = aiResponse.length();
+        int fence = aiResponse.indexOf("```");
+        if (fence >= 0) {
+            start = fence + 3;
+            if (aiResponse.startsWith("json", start)) {
+                start += 4;
+            }
+            int closing = aiResponse.indexOf("```", start);
+            if (closing >= 0) {
+                end = closing;
+            }
+        }
+        int objectStart = aiResponse.indexOf('{', start);
+        if (objectStart < 0 || objectStart >= end) {
+            return;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(aiResponse.substring(objectStart, end))) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "foodName" -> record.setFoodName(readText(parser));
+                    case "quantity" -> {
+                        record.setQuantity(readDouble(parser, 100.0));
+                        record.setUnit("克");
+                    }
+                    case "calories" -> record.setCalories((int) readDouble(parser, 0.0));
+                    case "protein" -> record.setProtein(readDouble(parser, 0.0));
+                    case "carbs" -> record.setCarbs(readDouble(parser, 0.0));
+                    case "fat" -> record.setFat(readDouble(parser, 0.0));
+                    case "fiber" -> record.setFiber(readDouble(parser, 0.0));
+                    case "mealType" -> record.setMealType(readText(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (Exception e) {
+            // 保留已解析出的字段，其余沿用默认值
+            System.err.println("解析营养识别结果失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 读取标量文本；对象或数组整体跳过，避免后续字段错位
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    private static double readDouble(JsonParser parser, double fallback) throws IOException {
+        if (parser.currentToken().isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        String text = parser.getValueAsString();
+        if (text == null) {
+            parser.skipChildren();
+            return fallback;
+        }
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
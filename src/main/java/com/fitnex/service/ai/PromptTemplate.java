@@ -0,0 +1,187 @@
+package com.fitnex.service.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的提示词模板：加载时把每行拆成常量片段和占位符，渲染时只做拼接。
+ * 占位符写作 {{name}}，含占位符的行在任一占位符取值为 null 时整行省略；
+ * 渲染结果超过 max-length 时从最长的占位符取值开始截断。
+ */
+public final class PromptTemplate {
+
+    private static final String HEADER_VERSION = "# version:";
+    private static final String HEADER_MAX_LENGTH = "# max-length:";
+
+    private final String name;
+    private final String version;
+    private final int maxLength;
+    private final Line[] lines;
+
+    private PromptTemplate(String name, String version, int maxLength, Line[] lines) {
+        this.name = name;
+        this.version = version;
+        this.maxLength = maxLength;
+        this.lines = lines;
+    }
+
+    /**
+     * 编译模板文本；文件开头以 # 开头的行为注释，其中 version 和 max-length 为模板元数据
+     */
+    public static PromptTemplate compile(String name, String source) {
+        String[] rawLines = source.replace("\r\n", "\n").split("\n", -1);
+        String version = "0";
+        int maxLength = Integer.MAX_VALUE;
+        int start = 0;
+        while (start < rawLines.length && rawLines[start].startsWith("#")) {
+            String header = rawLines[start];
+            if (header.startsWith(HEADER_VERSION)) {
+                version = header.substring(HEADER_VERSION.length()).trim();
+            } else if (header.startsWith(HEADER_MAX_LENGTH)) {
+                maxLength = Integer.parseInt(header.substring(HEADER_MAX_LENGTH.length()).trim());
+            }
+            start++;
+        }
+        int end = rawLines.length;
+        // 忽略文件末尾的换行
+        if (end > start && rawLines[end - 1].isEmpty()) {
+            end--;
+        }
+
+        Line[] lines = new Line[end - start];
+        for (int i = start; i < end; i++) {
+            lines[i - start] = compileLine(name, rawLines[i]);
+        }
+        return new PromptTemplate(name, version, maxLength, lines);
+    }
+
+    private static Line compileLine(String templateName, String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = text.indexOf("{{", pos);
+            if (open < 0) {
+                break;
+            }
+            int close = text.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("提示词模板 " + templateName + " 占位符未闭合: " + text);
+            }
+            literals.add(text.substring(pos, open));
+            slots.add(text.substring(open + 2, close).trim());
+            pos = close + 2;
+        }
+        literals.add(text.substring(pos));
+        int fixedLength = 0;
+        for (String literal : literals) {
+            fixedLength += literal.length();
+        }
+        return new Line(literals.toArray(new String[0]), slots.toArray(new String[0]), fixedLength);
+    }
+
+    public String render(Map<String, ?> values) {
+        String[][] slotValues = new String[lines.length][];
+        int total = 0;
+        int included = 0;
+        for (int i = 0; i < lines.length; i++) {
+            Line line = lines[i];
+            String[] rendered = new String[line.slots().length];
+            boolean complete = true;
+            for (int s = 0; s < rendered.length; s++) {
+                Object value = values.get(line.slots()[s]);
+                if (value == null) {
+                    complete = false;
+                    break;
+                }
+                rendered[s] = value.toString();
+            }
+            if (!complete) {
+                continue;
+            }
+            slotValues[i] = rendered;
+            total += line.fixedLength();
+            for (String value : rendered) {
+                total += value.length();
+            }
+            included++;
+        }
+        total += Math.max(0, included - 1);
+
+        if (total > maxLength) {
+            total = trimSlots(slotValues, total);
+        }
+
+        StringBuilder sb = new StringBuilder(total);
+        boolean first = true;
+        for (int i = 0; i < lines.length; i++) {
+            String[] rendered = slotValues[i];
+            if (rendered == null) {
+                continue;
+            }
+            if (!first) {
+                sb.append('\n');
+            }
+            first = false;
+            String[] literals = lines[i].literals();
+            sb.append(literals[0]);
+            for (int s = 0; s < rendered.length; s++) {
+                sb.append(rendered[s]).append(literals[s + 1]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 依次截断当前最长的占位符取值，直到总长度不超过预算或已无可截断内容
+     */
+    private int trimSlots(String[][] slotValues, int total) {
+        while (total > maxLength) {
+            int longestLine = -1;
+            int longestSlot = -1;
+            int longestLength = 0;
+            for (int i = 0; i < slotValues.length; i++) {
+                if (slotValues[i] == null) {
+                    continue;
+                }
+                for (int s = 0; s < slotValues[i].length; s++) {
+                    if (slotValues[i][s].length() > longestLength) {
+                        longestLine = i;
+                        longestSlot = s;
+                        longestLength = slotValues[i][s].length();
+                    }
+                }
+            }
+            if (longestLine < 0) {
+                break;
+            }
+            int cut = Math.min(longestLength, total - maxLength);
+            slotValues[longestLine][longestSlot] = slotValues[longestLine][longestSlot].substring(0, longestLength - cut);
+            total -= cut;
+        }
+        return total;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * 保留一位小数，替代 String.format("%.1f")
+     */
+    public static String oneDecimal(double value) {
+        return String.valueOf(Math.round(value * 10) / 10.0);
+    }
+
+    private record Line(String[] literals, String[] slots, int fixedLength) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 提示词模板仓库：启动时从 ai.prompt.location 加载并编译模板，之后定期检查内容变化并重新编译，
+ * 模板指向外部目录时修改提示词无需重新发布代码。
+ */
+@Component
+@RequiredArgsConstructor
+public class PromptTemplates {
+
+    public static final String WORKOUT_PLAN = "workout-plan";
+    public static final String NUTRITION_ADVICE = "nutrition-advice";
+
+    private static final String[] TEMPLATE_NAMES = {WORKOUT_PLAN, NUTRITION_ADVICE};
+
+    private final ResourceLoader resourceLoader;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.prompt.location:classpath:prompts/}")
+    private String location;
+
+    private final Map<String, Loaded> templates = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String name : TEMPLATE_NAMES) {
+            if (!load(name)) {
+                throw new IllegalStateException("提示词模板加载失败: " + name);
+            }
+        }
+    }
+
+    /**
+     * 定期重新读取模板，内容有变化才重新编译；加载失败时继续使用旧版本
+     */
+    @Scheduled(fixedDelayString = "${ai.prompt.refresh-interval-ms:60000}",
+            initialDelayString = "${ai.prompt.refresh-interval-ms:60000}")
+    public void refresh() {
+        for (String name : TEMPLATE_NAMES) {
+            load(name);
+        }
+    }
+
+    /**
+     * 渲染模板，并按模板名和版本计数，便于确认新版本提示词何时生效、对比各版本的调用效果
+     */
+    public String render(String name, Map<String, ?> values) {
+        Loaded loaded = loaded(name);
+        loaded.renders().increment();
+        return loaded.template().render(values);
+    }
+
+    public PromptTemplate get(String name) {
+        return loaded(name).template();
+    }
+
+    private Loaded loaded(String name) {
+        Loaded loaded = templates.get(name);
+        if (loaded == null) {
+            throw new IllegalArgumentException("未知的提示词模板: " + name);
+        }
+        return loaded;
+    }
+
+    private boolean load(String name) {
+        Resource resource = resourceLoader.getResource(location + name + ".txt");
+        try (InputStream in = resource.getInputStream()) {
+            String source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            Loaded current = templates.get(name);
+            if (current == null || !current.source().equals(source)) {
+                PromptTemplate template = PromptTemplate.compile(name, source);
+                // 计数器随模板版本在加载时注册一次，渲染时直接累加
+                Counter renders = Counter.builder("ai.prompt.renders")
+                        .description("提示词模板渲染次数")
+                        .tag("template", name)
+                        .tag("version", template.getVersion())
+                        .register(meterRegistry);
+                templates.put(name, new Loaded(source, template, renders));
+                if (current != null) {
+                    System.err.println("提示词模板已更新: " + name + " 版本 " + current.template().getVersion()
+                            + " -> " + template.getVersion());
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("加载提示词模板失败: " + name + " " + e.getMessage());
+            return false;
+        }
+    }
+
+    private record Loaded(String source, PromptTemplate template, Counter renders) {
+    }
+}
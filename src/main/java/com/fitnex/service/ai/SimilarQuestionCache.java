@@ -0,0 +1,310 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * 健身问答相似问题缓存：问题归一化后切成字符二元组，用 MinHash + LSH 分桶检索候选，
+ * 再按 Jaccard 相似度校验，超过阈值直接返回已有回答，避免近似重复问题反复调用星火。
+ * 字面相近但含义相反的问题（“能吃”与“不能吃”、“增肌”与“减脂”）Jaccard 仍可能很高，
+ * 因此否定词和健身目标词必须完全一致，长度相差过大的问题也不视为相似。
+ */
+@Component
+@RequiredArgsConstructor
+public class SimilarQuestionCache {
+
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final long[] SEEDS = new long[BANDS * ROWS];
+    private static final String IGNORED_CHARS = "吗呢吧啊呀么嘛哦哈的了";
+    private static final String NEGATION_CHARS = "不没别未勿无非";
+    private static final String[] GOAL_TERMS = {"增肌", "减脂", "减肥", "减重", "增重", "瘦身", "塑形", "备赛"};
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_F17EL);
+        for (int i = 0; i < SEEDS.length; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.qa-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.qa-cache.similarity-threshold:0.85}")
+    private double similarityThreshold;
+
+    @Value("${ai.qa-cache.min-length-ratio:0.8}")
+    private double minLengthRatio;
+
+    @Value("${ai.qa-cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${ai.qa-cache.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    // 按插入顺序保存，超出上限时淘汰最早的条目
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Long> idsByQuestion = new HashMap<>();
+    private final Map<Long, List<Long>> buckets = new HashMap<>();
+    private long nextId;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder("ai.qa.cache.requests")
+                .description("相似问题缓存查询次数")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("ai.qa.cache.requests")
+                .description("相似问题缓存查询次数")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("ai.qa.cache.size", this, SimilarQuestionCache::size)
+                .description("相似问题缓存条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 查找相似度不低于阈值的已缓存回答，未命中返回 null
+     */
+    public String get(String question) {
+        if (!enabled) {
+            return null;
+        }
+        String normalized = normalize(question);
+        Set<String> shingles = shingles(normalized);
+        if (shingles.isEmpty()) {
+            misses.increment();
+            return null;
+        }
+        long[] bandKeys = bandKeys(shingles);
+        String keyTerms = keyTerms(normalized);
+        long now = System.currentTimeMillis();
+
+        Entry best = null;
+        double bestSimilarity = similarityThreshold;
+        synchronized (this) {
+            Set<Long> candidates = new HashSet<>();
+            for (long bandKey : bandKeys) {
+                List<Long> ids = buckets.get(bandKey);
+                if (ids != null) {
+                    candidates.addAll(ids);
+                }
+            }
+            for (Long id : candidates) {
+                Entry entry = entries.get(id);
+                if (entry == null || entry.expireAt() < now || !entry.keyTerms().equals(keyTerms)
+                        || lengthRatio(normalized, entry.question()) < minLengthRatio) {
+                    continue;
+                }
+                double similarity = jaccard(shingles, entry.shingles());
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        if (best == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return best.answer();
+    }
+
+    public void put(String question, String answer) {
+        if (!enabled || answer == null || answer.isEmpty()) {
+            return;
+        }
+        String normalized = normalize(question);
+        Set<String> shingles = shingles(normalized);
+        if (shingles.isEmpty()) {
+            return;
+        }
+        long[] bandKeys = bandKeys(shingles);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Long existing = idsByQuestion.get(normalized);
+            if (existing != null) {
+                remove(existing);
+            }
+            long id = nextId++;
+            entries.put(id, new Entry(normalized, keyTerms(normalized), shingles, bandKeys, answer,
+                    now + ttlSeconds * 1000));
+            idsByQuestion.put(normalized, id);
+            for (long bandKey : bandKeys) {
+                buckets.computeIfAbsent(bandKey, k -> new ArrayList<>(2)).add(id);
+            }
+            evict(now);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+        List<Long> removed = new ArrayList<>();
+        int remaining = entries.size();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Entry> eldest = iterator.next();
+            if (remaining <= maxEntries && eldest.getValue().expireAt() >= now) {
+                break;
+            }
+            removed.add(eldest.getKey());
+            remaining--;
+        }
+        removed.forEach(this::remove);
+    }
+
+    private void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        idsByQuestion.remove(entry.question(), id);
+        for (long bandKey : entry.bandKeys()) {
+            List<Long> ids = buckets.get(bandKey);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    buckets.remove(bandKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * 去掉空白、标点和常见语气助词，统一小写
+     */
+    static String normalize(String question) {
+        if (question == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(question.length());
+        for (int i = 0; i < question.length(); i++) {
+            char c = question.charAt(i);
+            if (Character.isLetterOrDigit(c) && IGNORED_CHARS.indexOf(c) < 0) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 按出现顺序提取否定词和健身目标词，两个问题的结果不同即视为不同问题
+     */
+    static String keyTerms(String normalized) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < normalized.length()) {
+            String term = goalTermAt(normalized, i);
+            if (term != null) {
+                sb.append(term).append('|');
+                i += term.length();
+                continue;
+            }
+            char c = normalized.charAt(i);
+            if (NEGATION_CHARS.indexOf(c) >= 0) {
+                sb.append(c).append('|');
+            }
+            i++;
+        }
+        return sb.toString();
+    }
+
+    private static String goalTermAt(String normalized, int index) {
+        for (String term : GOAL_TERMS) {
+            if (normalized.startsWith(term, index)) {
+                return term;
+            }
+        }
+        return null;
+    }
+
+    private static double lengthRatio(String a, String b) {
+        int longer = Math.max(a.length(), b.length());
+        return longer == 0 ? 1 : (double) Math.min(a.length(), b.length()) / longer;
+    }
+
+    private static Set<String> shingles(String normalized) {
+        Set<String> shingles = new HashSet<>();
+        if (normalized.length() == 1) {
+            shingles.add(normalized);
+        }
+        for (int i = 0; i + 2 <= normalized.length(); i++) {
+            shingles.add(normalized.substring(i, i + 2));
+        }
+        return shingles;
+    }
+
+    /**
+     * 计算 MinHash 签名并按 BANDS 段合成分桶键，相似问题大概率至少落入同一个桶
+     */
+    private static long[] bandKeys(Set<String> shingles) {
+        long[] signature = new long[SEEDS.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String shingle : shingles) {
+            long base = shingle.hashCode();
+            for (int i = 0; i < SEEDS.length; i++) {
+                long h = mix(base ^ SEEDS[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS; row++) {
+                key = mix(key * 31 + signature[band * ROWS + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (String s : smaller) {
+            if (larger.contains(s)) {
+                intersection++;
+            }
+        }
+        int union = a.size() + b.size() - intersection;
+        return union == 0 ? 0 : (double) intersection / union;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Entry(String question, String keyTerms, Set<String> shingles, long[] bandKeys, String answer,
+                         long expireAt) {
+    }
+}
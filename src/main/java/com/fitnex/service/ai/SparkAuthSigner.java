@@ -0,0 +1,143 @@
+package com.fitnex.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * 讯飞星火鉴权 URL 签名：X-Param 启动时预先编码，MD5 摘要按线程复用，
+ * 同一时间窗口内直接返回已签名的 URL，避免每次调用重复计算。
+ */
+@Component
+public class SparkAuthSigner {
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @Value("${ai.spark.api-key:}")
+    private String sparkApiKey;
+
+    @Value("${ai.spark.api-secret:}")
+    private String sparkApiSecret;
+
+    @Value("${ai.spark.app-id:}")
+    private String sparkAppId;
+
+    @Value("${ai.spark.base-url:wss://spark-api.cn-huabei-1.xf-yun.com/v2.1/image}")
+    private String sparkBaseUrl;
+
+    /**
+     * 文本对话地址，为空时由 base-url 推导；压测时可与 base-url 一起指向本地模拟服务
+     */
+    @Value("${ai.spark.chat-url:}")
+    private String sparkChatUrl;
+
+    /**
+     * 签名 URL 复用时长，需小于讯飞允许的 X-CurTime 时钟偏差
+     */
+    @Value("${ai.spark.auth-url-ttl-seconds:60}")
+    private long authUrlTtlSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String imageUrlPrefix;
+    private String chatUrlPrefix;
+    private String imageParam;
+    private String chatParam;
+
+    private volatile SignedUrl imageUrl;
+    private volatile SignedUrl chatUrl;
+
+    @PostConstruct
+    public void init() {
+        imageUrlPrefix = sparkBaseUrl + "?authorization=";
+        String chatEndpoint = sparkChatUrl == null || sparkChatUrl.isBlank()
+                ? sparkBaseUrl.replace("/v2.1/image", "/v2.1/chat") : sparkChatUrl;
+        chatUrlPrefix = chatEndpoint + "?authorization=";
+        imageParam = encodeParam("image", 0.3, 500);
+        chatParam = encodeParam("general", 0.7, 2000);
+    }
+
+    /**
+     * 图片理解接口的鉴权 URL
+     */
+    public String imageAuthUrl() {
+        long now = currentSeconds();
+        SignedUrl cached = imageUrl;
+        if (cached != null && cached.isValid(now, authUrlTtlSeconds)) {
+            return cached.url();
+        }
+        SignedUrl signed = new SignedUrl(now, sign(imageUrlPrefix, imageParam, now));
+        imageUrl = signed;
+        return signed.url();
+    }
+
+    /**
+     * 文本对话接口的鉴权 URL
+     */
+    public String chatAuthUrl() {
+        long now = currentSeconds();
+        SignedUrl cached = chatUrl;
+        if (cached != null && cached.isValid(now, authUrlTtlSeconds)) {
+            return cached.url();
+        }
+        SignedUrl signed = new SignedUrl(now, sign(chatUrlPrefix, chatParam, now));
+        chatUrl = signed;
+        return signed.url();
+    }
+
+    private String sign(String urlPrefix, String param, long timestamp) {
+        String ts = Long.toString(timestamp);
+        MessageDigest md = MD5.get();
+        md.reset();
+        String signature = HexFormat.of().formatHex(
+                md.digest((sparkApiKey + ts + sparkApiSecret).getBytes(StandardCharsets.UTF_8)));
+        String authInfo = "api_key=\"" + sparkApiKey + "\", timestamp=\"" + ts + "\", signature=\"" + signature + "\"";
+
+        return urlPrefix + Base64.getEncoder().encodeToString(authInfo.getBytes(StandardCharsets.UTF_8)) +
+                "&X-Appid=" + sparkAppId +
+                "&X-CurTime=" + ts +
+                "&X-Param=" + param +
+                "&X-CheckSum=" + signature;
+    }
+
+    private String encodeParam(String domain, double temperature, int maxTokens) {
+        try {
+            Map<String, Object> param = new HashMap<>();
+            Map<String, Object> chat = new HashMap<>();
+            chat.put("domain", domain);
+            chat.put("temperature", temperature);
+            chat.put("max_tokens", maxTokens);
+            param.put("chat", chat);
+            return Base64.getEncoder().encodeToString(objectMapper.writeValueAsBytes(param));
+        } catch (Exception e) {
+            System.err.println("编码星火请求参数失败: " + e.getMessage());
+            return "";
+        }
+    }
+
+    private long currentSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private record SignedUrl(long timestamp, String url) {
+
+        boolean isValid(long now, long ttlSeconds) {
+            return now >= timestamp && now - timestamp < Math.max(1, ttlSeconds);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 星火并发隔离：限制同时打开的 WebSocket 数，超出部分按优先级排队，
+ * 队列满或排队超时时立即拒绝，由调用方走降级逻辑而不是等满超时。
+ */
+@Component
+@RequiredArgsConstructor
+public class SparkBulkhead {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.bulkhead.max-concurrent:16}")
+    private int maxConcurrent;
+
+    @Value("${ai.bulkhead.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${ai.bulkhead.max-wait-ms:10000}")
+    private long maxWaitMs;
+
+    private final PriorityQueue<Task<?>> queue = new PriorityQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private int running;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("ai.spark.bulkhead.running", this, SparkBulkhead::getRunning)
+                .description("正在执行的星火调用数")
+                .register(meterRegistry);
+        Gauge.builder("ai.spark.bulkhead.queued", this, SparkBulkhead::getQueued)
+                .description("排队等待的星火调用数")
+                .register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> submit(SparkPriority priority, Supplier<CompletableFuture<T>> call) {
+        Task<T> task = new Task<>(priority, sequence.incrementAndGet(), System.currentTimeMillis(), call);
+        Task<?> evicted = null;
+        boolean acquired = false;
+        synchronized (this) {
+            if (running < maxConcurrent) {
+                running++;
+                acquired = true;
+            } else {
+                if (queue.size() >= queueCapacity) {
+                    // 队列已满：挤掉优先级更低的排队请求，否则拒绝自己
+                    Task<?> lowest = lowestQueued();
+                    if (lowest == null || lowest.compareTo(task) < 0) {
+                        evicted = task;
+                    } else {
+                        queue.remove(lowest);
+                        evicted = lowest;
+                        queue.add(task);
+                    }
+                } else {
+                    queue.add(task);
+                }
+            }
+        }
+        if (evicted != null) {
+            reject(evicted);
+        }
+        if (acquired) {
+            start(task);
+        } else if (evicted != task) {
+            // 排队超过 max-wait-ms 仍未拿到执行名额时主动移出队列并拒绝，不必等到有调用结束
+            CompletableFuture.delayedExecutor(maxWaitMs, TimeUnit.MILLISECONDS).execute(() -> expire(task));
+        }
+        return task.result;
+    }
+
+    /**
+     * 判断异常是否由限流拒绝引起
+     */
+    public static boolean isRejected(Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof RejectedExecutionException) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * 不排队地占用一个执行名额，没有空闲名额或已有请求在排队时返回 false；成功后须调用 release 归还
+     */
+    public synchronized boolean tryAcquire() {
+        if (running < maxConcurrent && queue.isEmpty()) {
+            running++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    private <T> void start(Task<T> task) {
+        if (task.result.isDone()) {
+            // 排队期间已被调用方取消
+            release();
+            return;
+        }
+        try {
+            task.call.get().whenComplete((value, error) -> {
+                if (error != null) {
+                    task.result.completeExceptionally(error);
+                } else {
+                    task.result.complete(value);
+                }
+                release();
+            });
+        } catch (RuntimeException e) {
+            task.result.completeExceptionally(e);
+            release();
+        }
+    }
+
+    /**
+     * 归还执行名额，有排队请求时直接交给队首
+     */
+    public void release() {
+        List<Task<?>> expired = new ArrayList<>();
+        Task<?> next = null;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            while (!queue.isEmpty()) {
+                Task<?> candidate = queue.poll();
+                if (now - candidate.enqueuedAt > maxWaitMs) {
+                    expired.add(candidate);
+                } else {
+                    next = candidate;
+                    break;
+                }
+            }
+            if (next == null) {
+                running--;
+            }
+        }
+        expired.forEach(this::reject);
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    private void expire(Task<?> task) {
+        boolean removed;
+        synchronized (this) {
+            removed = queue.remove(task);
+        }
+        if (removed) {
+            reject(task);
+        }
+    }
+
+    private Task<?> lowestQueued() {
+        Task<?> lowest = null;
+        for (Task<?> queued : queue) {
+            if (lowest == null || queued.compareTo(lowest) > 0) {
+                lowest = queued;
+            }
+        }
+        return lowest;
+    }
+
+    private void reject(Task<?> task) {
+        Counter.builder("ai.spark.bulkhead.rejected")
+                .description("因并发或排队已满被拒绝的星火调用数")
+                .tag("priority", task.priority.name())
+                .register(meterRegistry)
+                .increment();
+        task.result.completeExceptionally(new RejectedExecutionException("AI服务繁忙，请求已被限流"));
+    }
+
+    private static class Task<T> implements Comparable<Task<?>> {
+        private final SparkPriority priority;
+        private final long sequence;
+        private final long enqueuedAt;
+        private final Supplier<CompletableFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Task(SparkPriority priority, long sequence, long enqueuedAt, Supplier<CompletableFuture<T>> call) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+            this.call = call;
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            int byPriority = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
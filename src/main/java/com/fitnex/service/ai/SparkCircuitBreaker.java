@@ -0,0 +1,224 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 星火调用熔断器：基于最近 N 次调用的失败率和慢调用率打开熔断，
+ * 打开期间直接拒绝调用，冷却后放行少量试探请求（半开），全部成功才恢复。
+ */
+@Component
+@RequiredArgsConstructor
+public class SparkCircuitBreaker {
+
+    private static final int FAILURE = 1;
+    private static final int SLOW = 2;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.circuit-breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${ai.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${ai.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${ai.circuit-breaker.slow-call-threshold-ms:10000}")
+    private long slowCallThresholdMs;
+
+    @Value("${ai.circuit-breaker.slow-call-rate-threshold:80}")
+    private int slowCallRateThreshold;
+
+    @Value("${ai.circuit-breaker.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    @Value("${ai.circuit-breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    private State state = State.CLOSED;
+    private int[] outcomes;
+    private int index;
+    private int recorded;
+    private int failureCount;
+    private int slowCount;
+    private long openedAt;
+    private int halfOpenAttempts;
+    private int halfOpenSuccesses;
+
+    @PostConstruct
+    public void init() {
+        outcomes = new int[windowSize];
+        Gauge.builder("ai.spark.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("星火熔断器状态：0=关闭，1=打开，2=半开")
+                .register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        if (!tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(new CircuitOpenException());
+        }
+        long start = System.nanoTime();
+        try {
+            return call.get().whenComplete((value, error) -> {
+                if (isCancelled(error) || DeadlineExceededException.isDeadlineExceeded(error)) {
+                    // 调用方主动取消或自身截止时间已到，不代表星火异常
+                    onIgnored();
+                } else {
+                    onResult(error == null, System.nanoTime() - start);
+                }
+            });
+        } catch (RuntimeException e) {
+            onResult(false, System.nanoTime() - start);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 判断异常是否由熔断打开引起
+     */
+    public static boolean isCircuitOpen(Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof CircuitOpenException) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    private static boolean isCancelled(Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof CancellationException) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("state", state.name());
+        snapshot.put("bufferedCalls", recorded);
+        snapshot.put("failureRate", recorded > 0 ? failureCount * 100.0 / recorded : 0.0);
+        snapshot.put("slowCallRate", recorded > 0 ? slowCount * 100.0 / recorded : 0.0);
+        snapshot.put("failureRateThreshold", failureRateThreshold);
+        snapshot.put("slowCallRateThreshold", slowCallRateThreshold);
+        snapshot.put("slowCallThresholdMs", slowCallThresholdMs);
+        if (state == State.OPEN) {
+            snapshot.put("remainingOpenMs", Math.max(0, openedAt + openDurationMs - System.currentTimeMillis()));
+        }
+        return snapshot;
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMs) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenAttempts = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenAttempts >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenAttempts++;
+        }
+        return true;
+    }
+
+    private synchronized void onResult(boolean success, long elapsedNanos) {
+        boolean slow = elapsedNanos > slowCallThresholdMs * 1_000_000L;
+        switch (state) {
+            case CLOSED -> {
+                record((success ? 0 : FAILURE) | (slow ? SLOW : 0));
+                if (recorded >= minimumCalls
+                        && (failureCount * 100 >= failureRateThreshold * recorded
+                        || slowCount * 100 >= slowCallRateThreshold * recorded)) {
+                    open();
+                }
+            }
+            case HALF_OPEN -> {
+                if (!success || slow) {
+                    open();
+                } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                    close();
+                }
+            }
+            default -> {
+                // 打开状态下返回的迟到结果不计入统计
+            }
+        }
+    }
+
+    /**
+     * 不计入统计的调用结束，半开状态下归还试探名额
+     */
+    private synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenAttempts > 0) {
+            halfOpenAttempts--;
+        }
+    }
+
+    private void record(int outcome) {
+        if (recorded == windowSize) {
+            int evicted = outcomes[index];
+            if ((evicted & FAILURE) != 0) failureCount--;
+            if ((evicted & SLOW) != 0) slowCount--;
+        } else {
+            recorded++;
+        }
+        outcomes[index] = outcome;
+        if ((outcome & FAILURE) != 0) failureCount++;
+        if ((outcome & SLOW) != 0) slowCount++;
+        index = (index + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        System.err.println("星火熔断器已打开，失败数: " + failureCount + "，慢调用数: " + slowCount + "，窗口: " + recorded);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        index = 0;
+        recorded = 0;
+        failureCount = 0;
+        slowCount = 0;
+    }
+
+    /**
+     * 熔断打开时的拒绝异常，归类为限流拒绝以复用调用方的快速降级逻辑
+     */
+    public static class CircuitOpenException extends RejectedExecutionException {
+        public CircuitOpenException() {
+            super("AI服务熔断中，暂不调用");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.fitnex.service.ai;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/sparkbreaker：查看星火熔断器当前状态
+ */
+@Component
+@Endpoint(id = "sparkbreaker")
+@RequiredArgsConstructor
+public class SparkCircuitBreakerEndpoint {
+
+    private final SparkCircuitBreaker sparkCircuitBreaker;
+
+    @ReadOperation
+    public Map<String, Object> state() {
+        return sparkCircuitBreaker.snapshot();
+    }
+}
@@ -0,0 +1,287 @@
+package com.fitnex.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import okhttp3.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * 讯飞星火 WebSocket 客户端，所有调用均为异步，不占用调用方线程等待响应
+ */
+@Component
+@RequiredArgsConstructor
+public class SparkClient {
+
+    private final SparkAuthSigner authSigner;
+    private final SparkMetrics sparkMetrics;
+    private final SparkDns sparkDns;
+
+    // 讯飞星火配置
+    @Value("${ai.spark.api-key:}")
+    private String sparkApiKey;
+
+    @Value("${ai.spark.api-secret:}")
+    private String sparkApiSecret;
+
+    @Value("${ai.spark.app-id:}")
+    private String sparkAppId;
+
+    @Value("${ai.spark.timeout:30000}")
+    private int timeout;
+
+    @Value("${ai.spark.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private OkHttpClient httpClient;
+
+    /**
+     * 星火协议每个连接单独签名且回答结束即由服务端关闭，无法复用 WebSocket；
+     * 这里复用同一个客户端的 TLS 会话缓存，并使用预解析的 DNS，尽量缩短每次建连耗时
+     */
+    @PostConstruct
+    public void init() {
+        httpClient = new OkHttpClient.Builder()
+                .dns(sparkDns)
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .pingInterval(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        try {
+            httpClient.dispatcher().executorService().shutdown();
+        } catch (Exception e) {
+        }
+    }
+
+    public boolean isConfigured() {
+        return sparkApiKey != null && !sparkApiKey.isEmpty() &&
+                sparkApiSecret != null && !sparkApiSecret.isEmpty() &&
+                sparkAppId != null && !sparkAppId.isEmpty();
+    }
+
+    /**
+     * 文本对话，返回各帧拼接后的完整回答
+     */
+    public CompletableFuture<String> chat(SparkOperation operation, String systemPrompt, String userPrompt) {
+        return chat(operation, systemPrompt, Collections.emptyList(), userPrompt, Deadline.none(), null);
+    }
+
+    /**
+     * 多轮文本对话，history 按时间正序排列；每收到一帧即回调 frameListener（可为 null），
+     * 超时取 ai.spark.timeout 与 deadline 剩余时间的较小值
+     */
+    public CompletableFuture<String> chat(SparkOperation operation, String systemPrompt,
+                                          List<ConversationMemory.Turn> history, String userPrompt,
+                                          Deadline deadline, Consumer<String> frameListener) {
+        return send(operation, authSigner.chatAuthUrl(),
+                buildSparkChatRequestJson(systemPrompt, history, userPrompt), deadline, frameListener);
+    }
+
+    /**
+     * 图片理解，返回各帧拼接后的完整回答
+     */
+    public CompletableFuture<String> recognizeImage(String base64Image, String contentType) {
+        return send(SparkOperation.IMAGE, authSigner.imageAuthUrl(),
+                buildSparkRequestJson(base64Image, contentType), Deadline.none(), null);
+    }
+
+    private CompletableFuture<String> send(SparkOperation operation, String authUrl, String requestJson,
+                                           Deadline deadline, Consumer<String> frameListener) {
+        long remaining = deadline.remainingMillis();
+        if (remaining <= 0) {
+            return CompletableFuture.failedFuture(new DeadlineExceededException());
+        }
+        // 截止时间早于配置超时时，到点按调用方超时结束，不算星火超时
+        boolean deadlineBound = remaining < timeout;
+        long budget = deadlineBound ? remaining : timeout;
+        SparkMetrics.Call call = sparkMetrics.start(operation);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        // 星火逐帧返回增量内容，OkHttp 在同一读线程内按序回调，无需加锁
+        StringBuilder answer = new StringBuilder();
+
+        Request request = new Request.Builder()
+                .url(authUrl)
+                .get()
+                .build();
+
+        WebSocket webSocket = httpClient.newWebSocket(request, new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket ws, Response response) {
+                call.connected();
+                ws.send(requestJson);
+            }
+
+            @Override
+            public void onMessage(WebSocket ws, String message) {
+                try {
+                    call.frameReceived();
+                    SparkFrame frame = SparkFrame.parse(message);
+                    if (frame.content() != null) {
+                        answer.append(frame.content());
+                        if (frameListener != null && !future.isDone()) {
+                            frameListener.accept(frame.content());
+                        }
+                    }
+                    if (frame.isError()) {
+                        future.completeExceptionally(new RuntimeException(
+                                "讯飞API返回错误码: " + frame.code() + " " + frame.message()));
+                        ws.close(1000, "error");
+                    } else if (frame.isLast()) {
+                        complete(future, answer.toString());
+                        ws.close(1000, "completed");
+                    }
+                } catch (Exception e) {
+                    future.completeExceptionally(new RuntimeException("解析响应失败: " + e.getMessage(), e));
+                }
+            }
+
+            @Override
+            public void onClosing(WebSocket ws, int code, String reason) {
+                // 未收到 status=2 的结束帧即被关闭，已收到的只是部分回答
+                future.completeExceptionally(new RuntimeException("讯飞API连接在回答结束前关闭: " + code + " " + reason));
+                ws.close(1000, null);
+            }
+
+            @Override
+            public void onFailure(WebSocket ws, Throwable t, Response response) {
+                future.completeExceptionally(new RuntimeException("WebSocket错误: " + t.getMessage(), t));
+            }
+        });
+
+        CompletableFuture.delayedExecutor(budget, TimeUnit.MILLISECONDS).execute(() ->
+                future.completeExceptionally(deadlineBound ? new DeadlineExceededException() : new TimeoutException()));
+        future.whenComplete((result, error) -> {
+                    call.completed(result, error);
+                    try {
+                        webSocket.close(1000, "finished");
+                    } catch (Exception e) {
+                    }
+                });
+        return future;
+    }
+
+    private void complete(CompletableFuture<String> future, String content) {
+        if (content != null && !content.isEmpty()) {
+            future.complete(content);
+        } else {
+            future.completeExceptionally(new RuntimeException("讯飞API未返回内容"));
+        }
+    }
+
+    private String buildSparkRequestJson(String base64Image, String contentType) {
+        try {
+            Map<String, Object> request = new HashMap<>();
+            Map<String, Object> header = new HashMap<>();
+            header.put("app_id", sparkAppId);
+            header.put("uid", UUID.randomUUID().toString());
+            request.put("header", header);
+
+            Map<String, Object> parameter = new HashMap<>();
+            Map<String, Object> chat = new HashMap<>();
+            chat.put("temperature", 0.3);
+            chat.put("max_tokens", 500);
+            parameter.put("chat", chat);
+            request.put("parameter", parameter);
+
+            Map<String, Object> payload = new HashMap<>();
+            Map<String, Object> message = new HashMap<>();
+            message.put("role", "user");
+            message.put("content", Arrays.asList(
+                    createTextContent("请识别这张图片中的食物，并返回JSON格式的营养信息。格式如下：{\"foodName\": \"食物名称\", \"quantity\": 数量(克), \"calories\": 卡路里, \"protein\": 蛋白质(克), \"carbs\": 碳水化合物(克), \"fat\": 脂肪(克), \"fiber\": 纤维(克), \"mealType\": \"BREAKFAST|LUNCH|DINNER|SNACK\"}。只返回JSON，不要其他文字。"),
+                    createImageContent(base64Image, contentType)
+            ));
+            payload.put("message", message);
+            request.put("payload", payload);
+
+            return objectMapper.writeValueAsString(request);
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    private Map<String, Object> createTextContent(String text) {
+        Map<String, Object> content = new HashMap<>();
+        content.put("type", "text");
+        content.put("text", text);
+        return content;
+    }
+
+    private Map<String, Object> createImageContent(String base64Image, String contentType) {
+        Map<String, Object> content = new HashMap<>();
+        content.put("type", "image");
+        Map<String, Object> image = new HashMap<>();
+        String format = "jpeg";
+        if (contentType != null) {
+            if (contentType.toLowerCase().contains("png")) {
+                format = "png";
+            } else if (contentType.toLowerCase().contains("gif")) {
+                format = "gif";
+            } else if (contentType.toLowerCase().contains("webp")) {
+                format = "webp";
+            }
+        }
+        image.put("format", format);
+        image.put("image", base64Image);
+        content.put("image", image);
+        return content;
+    }
+
+    private String buildSparkChatRequestJson(String systemPrompt, List<ConversationMemory.Turn> history,
+                                             String userPrompt) {
+        try {
+            Map<String, Object> request = new HashMap<>();
+            Map<String, Object> header = new HashMap<>();
+            header.put("app_id", sparkAppId);
+            header.put("uid", UUID.randomUUID().toString());
+            request.put("header", header);
+
+            Map<String, Object> parameter = new HashMap<>();
+            Map<String, Object> chat = new HashMap<>();
+            chat.put("domain", "general");
+            chat.put("temperature", 0.7);
+            chat.put("max_tokens", 2000);
+            parameter.put("chat", chat);
+            request.put("parameter", parameter);
+
+            Map<String, Object> payload = new HashMap<>();
+            List<Map<String, Object>> messages = new ArrayList<>();
+            if (systemPrompt != null && !systemPrompt.isEmpty()) {
+                Map<String, Object> systemMsg = new HashMap<>();
+                systemMsg.put("role", "system");
+                systemMsg.put("content", systemPrompt);
+                messages.add(systemMsg);
+            }
+            for (ConversationMemory.Turn turn : history) {
+                Map<String, Object> questionMsg = new HashMap<>();
+                questionMsg.put("role", "user");
+                questionMsg.put("content", turn.question());
+                messages.add(questionMsg);
+                Map<String, Object> answerMsg = new HashMap<>();
+                answerMsg.put("role", "assistant");
+                answerMsg.put("content", turn.answer());
+                messages.add(answerMsg);
+            }
+            Map<String, Object> userMsg = new HashMap<>();
+            userMsg.put("role", "user");
+            userMsg.put("content", userPrompt);
+            messages.add(userMsg);
+            payload.put("message", messages);
+            request.put("payload", payload);
+
+            return objectMapper.writeValueAsString(request);
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.fitnex.service.ai;
+
+import jakarta.annotation.PostConstruct;
+import okhttp3.Dns;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 星火域名解析缓存：启动时预解析，后台定期刷新，调用路径上直接命中缓存；
+ * 刷新失败时继续使用上次成功的解析结果。
+ */
+@Component
+public class SparkDns implements Dns {
+
+    @Value("${ai.spark.base-url:wss://spark-api.cn-huabei-1.xf-yun.com/v2.1/image}")
+    private String sparkBaseUrl;
+
+    @Value("${ai.spark.chat-url:}")
+    private String sparkChatUrl;
+
+    @Value("${ai.spark.dns-ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<String, Resolved> cache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        prewarm(sparkBaseUrl);
+        prewarm(sparkChatUrl);
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        Resolved resolved = cache.get(hostname);
+        if (resolved != null && resolved.expireAt() > System.currentTimeMillis()) {
+            return resolved.addresses();
+        }
+        try {
+            return resolve(hostname);
+        } catch (UnknownHostException e) {
+            if (resolved != null) {
+                return resolved.addresses();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 在过期前刷新已解析过的域名，避免请求线程同步等待 DNS
+     */
+    @Scheduled(fixedDelayString = "${ai.spark.dns-refresh-interval-ms:60000}")
+    public void refresh() {
+        long refreshBefore = System.currentTimeMillis() + ttlSeconds * 500;
+        for (Map.Entry<String, Resolved> entry : cache.entrySet()) {
+            if (entry.getValue().expireAt() < refreshBefore) {
+                try {
+                    resolve(entry.getKey());
+                } catch (UnknownHostException e) {
+                    System.err.println("刷新星火域名解析失败: " + entry.getKey() + " " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<InetAddress> resolve(String hostname) throws UnknownHostException {
+        List<InetAddress> addresses = Dns.SYSTEM.lookup(hostname);
+        cache.put(hostname, new Resolved(addresses, System.currentTimeMillis() + ttlSeconds * 1000));
+        return addresses;
+    }
+
+    private void prewarm(String url) {
+        if (url == null || url.isBlank()) {
+            return;
+        }
+        try {
+            String host = URI.create(url).getHost();
+            if (host != null) {
+                resolve(host);
+            }
+        } catch (Exception e) {
+            System.err.println("预解析星火域名失败: " + url + " " + e.getMessage());
+        }
+    }
+
+    private record Resolved(List<InetAddress> addresses, long expireAt) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.fitnex.service.ai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * 星火响应帧：只保留 header.code / header.message / header.status 和 payload.choices[0].message.content，
+ * 使用 Jackson 流式解析一次扫描完成，不构造中间 Map。
+ */
+public record SparkFrame(int code, String message, int status, String content) {
+
+    /** header.status 为 2 表示最后一帧 */
+    public static final int STATUS_LAST = 2;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public boolean isError() {
+        return code != 0;
+    }
+
+    public boolean isLast() {
+        return status == STATUS_LAST;
+    }
+
+    public static SparkFrame parse(String json) throws IOException {
+        int code = 0;
+        String message = null;
+        int status = -1;
+        String content = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("响应帧不是JSON对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("header".equals(field) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String headerField = parser.currentName();
+                        parser.nextToken();
+                        switch (headerField) {
+                            case "code" -> code = parser.getValueAsInt();
+                            case "message" -> message = parser.getValueAsString();
+                            case "status" -> status = parser.getValueAsInt(-1);
+                            default -> parser.skipChildren();
+                        }
+                    }
+                } else if ("payload".equals(field) && token == JsonToken.START_OBJECT) {
+                    content = readPayloadContent(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new SparkFrame(code, message, status, content);
+    }
+
+    /**
+     * 读取 payload.choices[0].message.content，解析器停在 payload 对象的结束位置
+     */
+    private static String readPayloadContent(JsonParser parser) throws IOException {
+        String content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (!"choices".equals(field) || token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            boolean first = true;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                    content = readChoiceContent(parser);
+                } else {
+                    parser.skipChildren();
+                }
+                first = false;
+            }
+        }
+        return content;
+    }
+
+    private static String readChoiceContent(JsonParser parser) throws IOException {
+        String content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("message".equals(field) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String messageField = parser.currentName();
+                    parser.nextToken();
+                    if ("content".equals(messageField)) {
+                        content = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content;
+    }
+}
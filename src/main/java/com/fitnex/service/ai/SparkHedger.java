@@ -0,0 +1,133 @@
+package com.fitnex.service.ai;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 星火对冲请求：首次调用在首帧耗时 P95 内仍未收到任何帧时，再发起一次相同调用，
+ * 取先成功的结果并取消另一个；全部失败才返回失败。同时进行中的对冲请求数有上限，避免放大流量。
+ * 对冲请求另占一个并发隔离名额，没有空闲名额时不对冲，星火连接总数不超过 ai.bulkhead.max-concurrent。
+ */
+@Component
+@RequiredArgsConstructor
+public class SparkHedger {
+
+    private final SparkMetrics sparkMetrics;
+    private final SparkBulkhead sparkBulkhead;
+
+    @Value("${ai.hedge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.hedge.min-delay-ms:1000}")
+    private long minDelayMs;
+
+    @Value("${ai.hedge.default-delay-ms:3000}")
+    private long defaultDelayMs;
+
+    @Value("${ai.hedge.max-in-flight:4}")
+    private int maxInFlight;
+
+    private final AtomicInteger hedgesInFlight = new AtomicInteger();
+
+    /**
+     * call 的参数为首帧回调，每次调用都应发起一次独立的星火请求
+     */
+    public CompletableFuture<String> execute(SparkOperation operation, Deadline deadline,
+                                             Function<Consumer<String>, CompletableFuture<String>> call) {
+        if (!enabled) {
+            return call.apply(null);
+        }
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicBoolean firstFrame = new AtomicBoolean();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<String>> hedgeRef = new AtomicReference<>();
+
+        CompletableFuture<String> primary = call.apply(frame -> firstFrame.set(true));
+        primary.whenComplete((value, error) -> {
+            if (error == null) {
+                if (result.complete(value)) {
+                    cancel(hedgeRef.get());
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+
+        long delay = hedgeDelayMillis(operation);
+        if (deadline.remainingMillis() > delay) {
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                if (result.isDone() || firstFrame.get() || !tryAcquireHedge()) {
+                    return;
+                }
+                // 原请求的名额仍被占用，对冲请求只用空闲名额，不排队也不挤占排队中的请求
+                if (!sparkBulkhead.tryAcquire()) {
+                    hedgesInFlight.decrementAndGet();
+                    sparkMetrics.recordHedgeSkipped(operation);
+                    return;
+                }
+                pending.incrementAndGet();
+                CompletableFuture<String> hedge;
+                try {
+                    hedge = call.apply(null);
+                } catch (RuntimeException e) {
+                    hedgesInFlight.decrementAndGet();
+                    sparkBulkhead.release();
+                    if (pending.decrementAndGet() == 0) {
+                        result.completeExceptionally(e);
+                    }
+                    return;
+                }
+                hedgeRef.set(hedge);
+                sparkMetrics.recordHedgeFired(operation);
+                hedge.whenComplete((value, error) -> {
+                    hedgesInFlight.decrementAndGet();
+                    sparkBulkhead.release();
+                    if (error == null) {
+                        if (result.complete(value)) {
+                            sparkMetrics.recordHedgeWin(operation);
+                            primary.cancel(true);
+                        }
+                    } else if (pending.decrementAndGet() == 0) {
+                        result.completeExceptionally(error);
+                    }
+                });
+                if (result.isDone()) {
+                    hedge.cancel(true);
+                }
+            });
+        }
+        return result;
+    }
+
+    private long hedgeDelayMillis(SparkOperation operation) {
+        double p95 = sparkMetrics.firstFrameP95Millis(operation);
+        return p95 > 0 ? Math.max(minDelayMs, (long) p95) : defaultDelayMs;
+    }
+
+    private boolean tryAcquireHedge() {
+        while (true) {
+            int current = hedgesInFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+            if (hedgesInFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void cancel(CompletableFuture<String> future) {
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+}
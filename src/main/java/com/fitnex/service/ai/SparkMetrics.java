@@ -0,0 +1,232 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 星火调用监控指标，按 operation 区分：建连耗时、首帧耗时、总耗时、超时与失败次数、
+ * 回答字符数、降级次数以及对冲请求次数。指标在启动时按业务类型预先注册，调用路径上只做记录。
+ */
+@Component
+@RequiredArgsConstructor
+public class SparkMetrics {
+
+    public static final String FALLBACK_CIRCUIT_OPEN = "circuit_open";
+    public static final String FALLBACK_REJECTED = "rejected";
+    public static final String FALLBACK_ERROR = "error";
+
+    private static final int MIN_SAMPLES_FOR_PERCENTILE = 20;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<SparkOperation, OperationMeters> meters = new EnumMap<>(SparkOperation.class);
+
+    @PostConstruct
+    public void init() {
+        for (SparkOperation operation : SparkOperation.values()) {
+            meters.put(operation, new OperationMeters(operation));
+        }
+    }
+
+    /**
+     * 开始一次星火调用的计时
+     */
+    public Call start(SparkOperation operation) {
+        return new Call(meters.get(operation));
+    }
+
+    /**
+     * 记录一次降级，reason 取 FALLBACK_* 常量
+     */
+    public void recordFallback(SparkOperation operation, String reason) {
+        OperationMeters m = meters.get(operation);
+        switch (reason) {
+            case FALLBACK_CIRCUIT_OPEN -> m.fallbackCircuitOpen.increment();
+            case FALLBACK_REJECTED -> m.fallbackRejected.increment();
+            default -> m.fallbackError.increment();
+        }
+    }
+
+    public void recordHedgeFired(SparkOperation operation) {
+        meters.get(operation).hedgeFired.increment();
+    }
+
+    public void recordHedgeSkipped(SparkOperation operation) {
+        meters.get(operation).hedgeSkipped.increment();
+    }
+
+    public void recordHedgeWin(SparkOperation operation) {
+        meters.get(operation).hedgeWins.increment();
+    }
+
+    /**
+     * 最近一段时间首帧耗时的 P95（毫秒），样本不足时返回 0
+     */
+    public double firstFrameP95Millis(SparkOperation operation) {
+        HistogramSnapshot snapshot = meters.get(operation).firstFrame.takeSnapshot();
+        if (snapshot.count() < MIN_SAMPLES_FOR_PERCENTILE) {
+            return 0;
+        }
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 根据异常判断降级原因
+     */
+    public static String fallbackReason(Throwable e) {
+        if (SparkCircuitBreaker.isCircuitOpen(e)) {
+            return FALLBACK_CIRCUIT_OPEN;
+        }
+        if (SparkBulkhead.isRejected(e)) {
+            return FALLBACK_REJECTED;
+        }
+        return FALLBACK_ERROR;
+    }
+
+    /**
+     * 单次调用的计时器，由 SparkClient 在 WebSocket 回调中记录各阶段
+     */
+    public static final class Call {
+
+        private final OperationMeters meters;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean firstFrame = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Call(OperationMeters meters) {
+            this.meters = meters;
+        }
+
+        public void connected() {
+            meters.connect.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void frameReceived() {
+            if (firstFrame.compareAndSet(false, true)) {
+                meters.firstFrame.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        public void completed(String content, Throwable error) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            long elapsed = System.nanoTime() - startNanos;
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                // 对冲中落败被取消的请求不计入耗时和失败
+                return;
+            }
+            if (cause == null) {
+                meters.latencySuccess.record(elapsed, TimeUnit.NANOSECONDS);
+                meters.responseChars.record(content != null ? content.length() : 0);
+            } else if (cause instanceof TimeoutException) {
+                meters.latencyTimeout.record(elapsed, TimeUnit.NANOSECONDS);
+                meters.timeouts.increment();
+            } else {
+                meters.latencyFailure.record(elapsed, TimeUnit.NANOSECONDS);
+                meters.failures.increment();
+            }
+        }
+    }
+
+    private final class OperationMeters {
+
+        final Timer connect;
+        final Timer firstFrame;
+        final Timer latencySuccess;
+        final Timer latencyFailure;
+        final Timer latencyTimeout;
+        final Counter timeouts;
+        final Counter failures;
+        final DistributionSummary responseChars;
+        final Counter fallbackCircuitOpen;
+        final Counter fallbackRejected;
+        final Counter fallbackError;
+        final Counter hedgeFired;
+        final Counter hedgeWins;
+        final Counter hedgeSkipped;
+
+        OperationMeters(SparkOperation operation) {
+            String tag = operation.tag();
+            connect = Timer.builder("ai.spark.connect")
+                    .description("星火 WebSocket 建连耗时")
+                    .tag("operation", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            firstFrame = Timer.builder("ai.spark.first-frame")
+                    .description("从发起调用到收到首帧的耗时")
+                    .tag("operation", tag)
+                    .publishPercentiles(0.95)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            latencySuccess = latency(tag, "success");
+            latencyFailure = latency(tag, "failure");
+            latencyTimeout = latency(tag, "timeout");
+            timeouts = Counter.builder("ai.spark.timeouts")
+                    .description("星火调用超时次数")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            failures = Counter.builder("ai.spark.failures")
+                    .description("星火调用失败次数（不含超时）")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            responseChars = DistributionSummary.builder("ai.spark.response.chars")
+                    .description("星火回答字符数")
+                    .tag("operation", tag)
+                    .baseUnit("chars")
+                    .register(meterRegistry);
+            fallbackCircuitOpen = fallback(tag, FALLBACK_CIRCUIT_OPEN);
+            fallbackRejected = fallback(tag, FALLBACK_REJECTED);
+            fallbackError = fallback(tag, FALLBACK_ERROR);
+            hedgeFired = Counter.builder("ai.spark.hedge.fired")
+                    .description("发出的对冲请求数")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            hedgeWins = Counter.builder("ai.spark.hedge.wins")
+                    .description("对冲请求先于原请求返回的次数")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            hedgeSkipped = Counter.builder("ai.spark.hedge.skipped")
+                    .description("因并发隔离没有空闲名额而放弃的对冲请求数")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+        }
+
+        private Timer latency(String tag, String outcome) {
+            return Timer.builder("ai.spark.latency")
+                    .description("星火调用总耗时")
+                    .tags("operation", tag, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        private Counter fallback(String tag, String reason) {
+            return Counter.builder("ai.spark.fallbacks")
+                    .description("星火调用降级次数")
+                    .tags("operation", tag, "reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.fitnex.service.ai;
+
+/**
+ * 星火调用的业务类型，用作监控指标的 operation 标签
+ */
+public enum SparkOperation {
+    /** 健身问答（含流式） */
+    CHAT("chat"),
+    /** 食物图片识别 */
+    IMAGE("image"),
+    /** 训练计划生成 */
+    PLAN("plan"),
+    /** 饮食建议 */
+    ADVICE("advice");
+
+    private final String tag;
+
+    SparkOperation(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,13 @@
+package com.fitnex.service.ai;
+
+/**
+ * 星火调用优先级，声明顺序即优先级从高到低
+ */
+public enum SparkPriority {
+    /** 用户实时等待的问答 */
+    INTERACTIVE,
+    /** 食物识别、饮食建议 */
+    NORMAL,
+    /** 训练计划生成等后台任务 */
+    BACKGROUND
+}
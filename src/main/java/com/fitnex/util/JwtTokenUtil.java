@@ -1,39 +1,101 @@
 package com.fitnex.util;
 
+import com.fitnex.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * JWT 签发与校验：签名密钥和解析器启动时构建一次；校验通过的令牌按 SHA-256 摘要缓存不可变的声明视图，
+ * 同一令牌在过期前重复请求时不再解析和验签。
+ */
 @Component
 public class JwtTokenUtil {
 
+    public static final String CLAIM_USER_ID = "userId";
+    public static final String CLAIM_ENABLED = "enabled";
+    public static final String CLAIM_ROLE = "role";
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    @Value("${jwt.verify-cache.max-size:10000}")
+    private int verifyCacheMaxSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    private final Map<String, VerifiedToken> verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+            return size() > verifyCacheMaxSize;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+
+    /**
+     * 校验令牌并返回声明，每个令牌只解析一次；签名错误或已过期时抛出 JwtException
+     */
+    public VerifiedToken verify(String token) {
+        String key = HexFormat.of().formatHex(SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        long now = System.currentTimeMillis();
+        synchronized (verifiedTokens) {
+            VerifiedToken cached = verifiedTokens.get(key);
+            if (cached != null) {
+                if (cached.expiresAtMillis() > now) {
+                    return cached;
+                }
+                verifiedTokens.remove(key);
+            }
+        }
+        VerifiedToken verified = VerifiedToken.from(getAllClaimsFromToken(token));
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(key, verified);
+        }
+        return verified;
     }
 
     public String getUsernameFromToken(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+        return verify(token).subject();
     }
 
     public Date getExpirationDateFromToken(String token) {
-        return getClaimFromToken(token, Claims::getExpiration);
+        return new Date(verify(token).expiresAtMillis());
     }
 
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
@@ -41,17 +103,22 @@ public class JwtTokenUtil {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * 校验签名并返回全部声明，签名错误或已过期时抛出异常
+     */
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
-    private Boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+    /**
+     * 生成携带用户ID、启用状态和角色的令牌，鉴权时无需再查询用户表
+     */
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ENABLED, !Boolean.FALSE.equals(user.getEnabled()));
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        return createToken(claims, user.getUsername());
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -70,13 +137,30 @@ public class JwtTokenUtil {
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        VerifiedToken verified = verify(token);
+        return verified.subject().equals(userDetails.getUsername()) && verified.expiresAtMillis() > System.currentTimeMillis();
+    }
+
+    /**
+     * 校验通过的令牌声明，只保留鉴权需要的字段
+     */
+    public record VerifiedToken(String subject, Long userId, Boolean enabled, String role, long expiresAtMillis) {
+
+        static VerifiedToken from(Claims claims) {
+            Object userId = claims.get(CLAIM_USER_ID);
+            Date expiresAt = claims.getExpiration();
+            return new VerifiedToken(
+                    claims.getSubject(),
+                    userId instanceof Number number ? number.longValue() : null,
+                    claims.get(CLAIM_ENABLED, Boolean.class),
+                    claims.get(CLAIM_ROLE, String.class),
+                    expiresAt != null ? expiresAt.getTime() : Long.MAX_VALUE);
+        }
     }
 }
 
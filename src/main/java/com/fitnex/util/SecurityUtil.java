@@ -2,6 +2,7 @@ package com.fitnex.util;
 
 import com.fitnex.entity.User;
 import com.fitnex.repository.UserRepository;
+import com.fitnex.security.JwtUserPrincipal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,6 +19,11 @@ public class SecurityUtil {
             throw new RuntimeException("未认证");
         }
 
+        // 新令牌的登录主体自带用户ID，无需查询数据库
+        if (authentication.getPrincipal() instanceof JwtUserPrincipal principal) {
+            return principal.userId();
+        }
+
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         String username = userDetails.getUsername();
         
@@ -0,0 +1,33 @@
+package com.fitnex.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * 在短事务中执行落库操作，并记录事务（即数据库连接）持有时长。
+ * 耗时的外部调用（AI、文件写入）应放在事务之外完成。
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionRunner {
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return transactionTemplate.execute(status -> action.get());
+        } finally {
+            sample.stop(Timer.builder("fitnex.db.transaction.hold")
+                    .description("短事务持有数据库连接的时长")
+                    .tag("operation", operation)
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.fitnex;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行 src/test 下的 JMH 微基准：mvn test -Pbenchmark -Dtest=JmhBenchmarkTest
+ * 可用 -Djmh.include=正则 只运行部分基准，如 -Djmh.include=SparkResponseParsingBenchmark
+ */
+@Tag("benchmark")
+class JmhBenchmarkTest {
+
+    @Test
+    void run() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", "com\\.fitnex\\..*Benchmark"))
+                .build();
+        new Runner(options).run();
+    }
+}
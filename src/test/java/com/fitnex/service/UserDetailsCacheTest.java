@@ -0,0 +1,59 @@
+package com.fitnex.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 用户信息缓存的本地层，关闭 Redis
+ */
+class UserDetailsCacheTest {
+
+    private MeterRegistry meterRegistry;
+    private UserDetailsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new UserDetailsCache(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class),
+                meterRegistry);
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        ReflectionTestUtils.setField(cache, "localTtlSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "redisTtlSeconds", 1800L);
+        ReflectionTestUtils.setField(cache, "redisEnabled", false);
+        cache.init();
+    }
+
+    @Test
+    void localHitKeepsPasswordUntilEvicted() {
+        UserDetailsCache.CachedUser user = new UserDetailsCache.CachedUser(1L, "zhangsan", "$2a$10$hash", true, "USER");
+        cache.put(user);
+
+        assertEquals(user, cache.get("zhangsan"));
+
+        cache.evict("zhangsan");
+        assertNull(cache.get("zhangsan"));
+    }
+
+    @Test
+    void recordsCacheStats() {
+        cache.put(new UserDetailsCache.CachedUser(1L, "zhangsan", "$2a$10$hash", true, "USER"));
+        cache.get("zhangsan");
+        cache.get("lisi");
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "userDetails").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "userDetails").tag("result", "miss")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("security.user.cache.requests").tag("result", "local").counter().count());
+        assertEquals(1.0, meterRegistry.get("security.user.cache.requests").tag("result", "miss").counter().count());
+    }
+}
@@ -0,0 +1,243 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * AIService 压测：星火调用指向本地 SparkStandInServer，按固定并发发起请求，
+ * 输出吞吐量、P50/P95/P99 延迟和降级次数（返回兜底结果的请求数）。
+ * 覆盖 /ai/question 与 /nutrition/recognize 背后的 AI 调用链（限流、熔断、对冲、WebSocket、解析），
+ * 识别结果缓存只用本地层，会话记忆和相似问题缓存替换为空实现，不连接 Redis 和数据库。
+ *
+ * 运行：mvn test -Pbenchmark -Dtest=AILoadBenchmarkTest
+ * 可用系统属性调整，如 -Dbenchmark.concurrency=64 -Dbenchmark.requests=2000
+ * -Dbenchmark.first-frame-delay-ms=500 -Dbenchmark.error-rate=0.05
+ */
+@Tag("benchmark")
+class AILoadBenchmarkTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 32);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 500);
+    private static final int WARMUP_REQUESTS = Integer.getInteger("benchmark.warmup", 50);
+    private static final long FIRST_FRAME_DELAY_MS = Long.getLong("benchmark.first-frame-delay-ms", 300);
+    private static final long FRAME_INTERVAL_MS = Long.getLong("benchmark.frame-interval-ms", 30);
+    private static final int CHUNKS = Integer.getInteger("benchmark.chunks", 8);
+    private static final double ERROR_RATE = Double.parseDouble(System.getProperty("benchmark.error-rate", "0"));
+    private static final double DISCONNECT_RATE = Double.parseDouble(System.getProperty("benchmark.disconnect-rate", "0"));
+    private static final int MAX_CONCURRENT = Integer.getInteger("benchmark.bulkhead.max-concurrent", 16);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("benchmark.bulkhead.queue-capacity", 64);
+
+    private static final String UNRECOGNIZED_FOOD = "未识别食物";
+
+    private SparkStandInServer server;
+    private MeterRegistry meterRegistry;
+    private SparkClient sparkClient;
+    private SparkCircuitBreaker sparkCircuitBreaker;
+    private AIService aiService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new SparkStandInServer()
+                .firstFrameDelay(FIRST_FRAME_DELAY_MS)
+                .frameInterval(FRAME_INTERVAL_MS)
+                .chunks(CHUNKS)
+                .errorRate(ERROR_RATE)
+                .disconnectRate(DISCONNECT_RATE);
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+        aiService = newAIService(server.baseUrl());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        sparkClient.cleanup();
+        server.close();
+    }
+
+    @Test
+    void fitnessQuestion() throws InterruptedException {
+        // 问题各不相同，避免被单飞合并；返回的必须是模拟服务分帧下发的完整回答，否则视为降级
+        run("/ai/question", i -> aiService
+                .answerFitnessQuestionAsync((long) (i % 100), "深蹲时膝盖疼怎么办？第" + i + "问", Deadline.after(55000))
+                .thenApply(answer -> server.getChatAnswer().equals(answer)));
+    }
+
+    @Test
+    void foodRecognition() throws InterruptedException, IOException {
+        int total = WARMUP_REQUESTS + REQUESTS;
+        // 每张图片内容不同，避免命中识别结果缓存
+        MockMultipartFile[] images = new MockMultipartFile[total];
+        for (int i = 0; i < total; i++) {
+            images[i] = new MockMultipartFile("image", "food-" + i + ".jpg", "image/jpeg", jpeg(i));
+        }
+        run("/nutrition/recognize", i -> aiService.recognizeFoodFromImageAsync(images[i])
+                .thenApply(record -> !UNRECOGNIZED_FOOD.equals(record.getFoodName())));
+    }
+
+    private void run(String name, IntFunction<CompletableFuture<Boolean>> call) throws InterruptedException {
+        drive(call, 0, WARMUP_REQUESTS, new AtomicInteger());
+
+        AtomicInteger degraded = new AtomicInteger();
+        long start = System.nanoTime();
+        long[] latencies = drive(call, WARMUP_REQUESTS, REQUESTS, degraded);
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("%n[%s] 并发 %d，请求 %d，耗时 %.1f s，吞吐 %.1f req/s%n", name, CONCURRENCY, REQUESTS,
+                elapsed / 1e9, REQUESTS / (elapsed / 1e9));
+        System.out.printf("[%s] 延迟 P50 %d ms，P95 %d ms，P99 %d ms，最大 %d ms%n", name,
+                percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                TimeUnit.NANOSECONDS.toMillis(latencies[latencies.length - 1]));
+        System.out.printf("[%s] 降级 %d 次，星火模拟服务累计收到 %d 个请求帧，熔断器状态 %s%n%n", name, degraded.get(),
+                server.getRequestCount(), sparkCircuitBreaker.getState());
+
+        if (ERROR_RATE == 0 && DISCONNECT_RATE == 0) {
+            assertEquals(0, degraded.get(), "无错误注入时不应降级");
+        }
+    }
+
+    /**
+     * 以固定并发发起 count 个请求，返回每个请求的耗时（纳秒），未拿到正常结果的请求计入 degraded
+     */
+    private long[] drive(IntFunction<CompletableFuture<Boolean>> call, int offset, int count, AtomicInteger degraded)
+            throws InterruptedException {
+        long[] latencies = new long[count];
+        Semaphore permits = new Semaphore(CONCURRENCY);
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            permits.acquire();
+            int index = i;
+            long begin = System.nanoTime();
+            call.apply(offset + i).whenComplete((result, error) -> {
+                latencies[index] = System.nanoTime() - begin;
+                if (error != null || !result) {
+                    degraded.incrementAndGet();
+                }
+                permits.release();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.MINUTES), "压测请求未在限定时间内完成");
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+    private static byte[] jpeg(int seed) throws IOException {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color((seed * 0x9E3779B1) & 0xFFFFFF));
+        graphics.fillRect(0, 0, 320, 240);
+        graphics.setColor(Color.WHITE);
+        graphics.drawString("food " + seed, 20, 120);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 按 application.yml 的默认配置手工装配 AI 调用链，星火地址指向模拟服务
+     */
+    private AIService newAIService(String baseUrl) {
+        SparkAuthSigner authSigner = new SparkAuthSigner();
+        ReflectionTestUtils.setField(authSigner, "sparkApiKey", "benchmark-key");
+        ReflectionTestUtils.setField(authSigner, "sparkApiSecret", "benchmark-secret");
+        ReflectionTestUtils.setField(authSigner, "sparkAppId", "benchmark-app");
+        ReflectionTestUtils.setField(authSigner, "sparkBaseUrl", baseUrl);
+        ReflectionTestUtils.setField(authSigner, "sparkChatUrl", "");
+        ReflectionTestUtils.setField(authSigner, "authUrlTtlSeconds", 60L);
+        authSigner.init();
+
+        SparkDns sparkDns = new SparkDns();
+        ReflectionTestUtils.setField(sparkDns, "sparkBaseUrl", baseUrl);
+        ReflectionTestUtils.setField(sparkDns, "sparkChatUrl", "");
+        ReflectionTestUtils.setField(sparkDns, "ttlSeconds", 300L);
+        sparkDns.init();
+
+        SparkMetrics sparkMetrics = new SparkMetrics(meterRegistry);
+        sparkMetrics.init();
+
+        sparkClient = new SparkClient(authSigner, sparkMetrics, sparkDns);
+        ReflectionTestUtils.setField(sparkClient, "sparkApiKey", "benchmark-key");
+        ReflectionTestUtils.setField(sparkClient, "sparkApiSecret", "benchmark-secret");
+        ReflectionTestUtils.setField(sparkClient, "sparkAppId", "benchmark-app");
+        ReflectionTestUtils.setField(sparkClient, "timeout", 30000);
+        ReflectionTestUtils.setField(sparkClient, "connectTimeoutMs", 5000);
+        sparkClient.init();
+
+        FoodRecognitionCache foodRecognitionCache = new FoodRecognitionCache(mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(foodRecognitionCache, "maxSize", 1000);
+        ReflectionTestUtils.setField(foodRecognitionCache, "ttlSeconds", 86400L);
+        ReflectionTestUtils.setField(foodRecognitionCache, "redisEnabled", false);
+
+        FoodNutritionIndex foodNutritionIndex = new FoodNutritionIndex();
+        foodNutritionIndex.load();
+
+        ImagePreprocessor imagePreprocessor = new ImagePreprocessor();
+        ReflectionTestUtils.setField(imagePreprocessor, "maxEdge", 1024);
+        ReflectionTestUtils.setField(imagePreprocessor, "jpegQuality", 0.8);
+
+        SparkBulkhead sparkBulkhead = new SparkBulkhead(meterRegistry);
+        ReflectionTestUtils.setField(sparkBulkhead, "maxConcurrent", MAX_CONCURRENT);
+        ReflectionTestUtils.setField(sparkBulkhead, "queueCapacity", QUEUE_CAPACITY);
+        ReflectionTestUtils.setField(sparkBulkhead, "maxWaitMs", 10000L);
+        sparkBulkhead.init();
+
+        sparkCircuitBreaker = new SparkCircuitBreaker(meterRegistry);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "windowSize", 20);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "minimumCalls", 10);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "slowCallThresholdMs", 10000L);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "slowCallRateThreshold", 80);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "openDurationMs", 30000L);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "halfOpenCalls", 3);
+        sparkCircuitBreaker.init();
+
+        PromptTemplates promptTemplates = new PromptTemplates(new DefaultResourceLoader(), meterRegistry);
+        ReflectionTestUtils.setField(promptTemplates, "location", "classpath:prompts/");
+        promptTemplates.init();
+
+        SparkHedger sparkHedger = new SparkHedger(sparkMetrics, sparkBulkhead);
+        ReflectionTestUtils.setField(sparkHedger, "enabled", true);
+        ReflectionTestUtils.setField(sparkHedger, "minDelayMs", 1000L);
+        ReflectionTestUtils.setField(sparkHedger, "defaultDelayMs", 3000L);
+        ReflectionTestUtils.setField(sparkHedger, "maxInFlight", 4);
+
+        // 会话记忆和相似问题缓存依赖 Redis，压测中使用返回空结果的 mock
+        AIService service = new AIService(sparkClient, foodRecognitionCache, foodNutritionIndex, imagePreprocessor,
+                sparkBulkhead, sparkCircuitBreaker, meterRegistry, sparkMetrics, mock(ConversationMemory.class),
+                mock(SimilarQuestionCache.class), promptTemplates, sparkHedger);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,106 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 问答写入会话记忆的是完整回答：星火地址指向本地 SparkStandInServer，回答分多帧下发
+ */
+class AIServiceTest {
+
+    private static final Long USER_ID = 7L;
+
+    private SparkStandInServer server;
+    private SparkClient sparkClient;
+    private ConversationMemory conversationMemory;
+    private SimilarQuestionCache similarQuestionCache;
+    private AIService aiService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new SparkStandInServer()
+                .firstFrameDelay(10)
+                .frameInterval(5)
+                .chunks(4);
+        server.start();
+        sparkClient = SparkClientTest.newSparkClient(server.baseUrl());
+        conversationMemory = mock(ConversationMemory.class);
+        similarQuestionCache = mock(SimilarQuestionCache.class);
+        aiService = newAIService();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        sparkClient.cleanup();
+        server.close();
+    }
+
+    @Test
+    void answerStoresFullAnswer() throws Exception {
+        String question = "深蹲时膝盖疼怎么办？";
+
+        String answer = aiService.answerFitnessQuestionAsync(USER_ID, question, Deadline.after(5000))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(server.getChatAnswer(), answer);
+        verify(conversationMemory).append(USER_ID, question, server.getChatAnswer());
+        verify(similarQuestionCache).put(question, server.getChatAnswer());
+    }
+
+    @Test
+    void streamStoresFullAnswer() throws Exception {
+        String question = "练完腿第二天还能跑步吗？";
+        StringBuilder streamed = new StringBuilder();
+
+        String answer = aiService.streamFitnessQuestion(USER_ID, question, Deadline.after(5000), streamed::append)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(server.getChatAnswer(), answer);
+        assertEquals(server.getChatAnswer(), streamed.toString());
+        verify(conversationMemory).append(USER_ID, question, server.getChatAnswer());
+    }
+
+    private AIService newAIService() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SparkMetrics sparkMetrics = new SparkMetrics(meterRegistry);
+        sparkMetrics.init();
+
+        SparkBulkhead sparkBulkhead = new SparkBulkhead(meterRegistry);
+        ReflectionTestUtils.setField(sparkBulkhead, "maxConcurrent", 4);
+        ReflectionTestUtils.setField(sparkBulkhead, "queueCapacity", 8);
+        ReflectionTestUtils.setField(sparkBulkhead, "maxWaitMs", 5000L);
+        sparkBulkhead.init();
+
+        SparkCircuitBreaker sparkCircuitBreaker = new SparkCircuitBreaker(meterRegistry);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "windowSize", 20);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "minimumCalls", 10);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "slowCallThresholdMs", 10000L);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "slowCallRateThreshold", 80);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "openDurationMs", 30000L);
+        ReflectionTestUtils.setField(sparkCircuitBreaker, "halfOpenCalls", 3);
+        sparkCircuitBreaker.init();
+
+        SparkHedger sparkHedger = new SparkHedger(sparkMetrics, sparkBulkhead);
+        ReflectionTestUtils.setField(sparkHedger, "enabled", false);
+
+        // 图片识别和提示词模板不在问答路径上
+        AIService service = new AIService(sparkClient, mock(FoodRecognitionCache.class),
+                mock(FoodNutritionIndex.class), mock(ImagePreprocessor.class), sparkBulkhead, sparkCircuitBreaker,
+                meterRegistry, sparkMetrics, conversationMemory, similarQuestionCache, mock(PromptTemplates.class),
+                sparkHedger);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,244 @@
+package com.fitnex.service.ai;
+
+import com.fitnex.entity.HealthProfile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 训练计划和饮食建议提示词的构建耗时：
+ * legacy* 为改造前的 StringBuilder + String.format 拼接，template* 为 PromptTemplates 渲染（含取值 Map 的构建）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptRenderingBenchmark {
+
+    private static final String USERNAME = "zhangsan";
+    private static final int DAILY_CALORIES = 1650;
+    private static final int TARGET_CALORIES = 1900;
+    private static final double PROTEIN = 86.4;
+    private static final double CARBS = 190.2;
+    private static final double FAT = 52.7;
+
+    private HealthProfile profile;
+    private PromptTemplates promptTemplates;
+
+    @Setup
+    public void setUp() {
+        profile = new HealthProfile();
+        profile.setFitnessGoal("减脂");
+        profile.setActivityLevel("中度");
+        profile.setHeight(172.0);
+        profile.setWeight(78.5);
+        profile.setBmi(26.53);
+        profile.setBodyFat(24.8);
+        profile.setTargetWeight(70);
+        profile.setMedicalHistory("左膝半月板轻度损伤");
+        profile.setDietaryRestrictions("少油少盐");
+        profile.setAllergies("花生");
+
+        promptTemplates = new PromptTemplates(new DefaultResourceLoader(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(promptTemplates, "location", "classpath:prompts/");
+        promptTemplates.init();
+    }
+
+    @Benchmark
+    public String legacyWorkoutPlan() {
+        return legacyWorkoutPlanPrompt(USERNAME, profile);
+    }
+
+    @Benchmark
+    public String templateWorkoutPlan() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("username", USERNAME);
+        values.put("hasProfile", "");
+        values.put("fitnessGoal", profile.getFitnessGoal());
+        values.put("activityLevel", profile.getActivityLevel());
+        values.put("height", profile.getHeight());
+        values.put("weight", profile.getWeight());
+        values.put("bmi", PromptTemplate.oneDecimal(profile.getBmi()));
+        values.put("targetWeight", profile.getTargetWeight());
+        values.put("bodyFat", PromptTemplate.oneDecimal(profile.getBodyFat()));
+        values.put("medicalHistory", profile.getMedicalHistory());
+        return promptTemplates.render(PromptTemplates.WORKOUT_PLAN, values);
+    }
+
+    @Benchmark
+    public String legacyNutritionAdvice() {
+        return legacyNutritionAdvicePrompt(profile, DAILY_CALORIES, TARGET_CALORIES, PROTEIN, CARBS, FAT);
+    }
+
+    @Benchmark
+    public String templateNutritionAdvice() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("fitnessGoal", profile.getFitnessGoal());
+        values.put("activityLevel", profile.getActivityLevel());
+        values.put("height", profile.getHeight());
+        values.put("weight", profile.getWeight());
+        values.put("bmi", PromptTemplate.oneDecimal(profile.getBmi()));
+        values.put("targetWeight", profile.getTargetWeight());
+        values.put("dietaryRestrictions", profile.getDietaryRestrictions());
+        values.put("allergies", profile.getAllergies());
+        values.put("dailyCalories", DAILY_CALORIES);
+        values.put("targetCalories", TARGET_CALORIES);
+        values.put("remainingCalories", TARGET_CALORIES - DAILY_CALORIES);
+        values.put("withinLimit", "");
+        values.put("protein", PromptTemplate.oneDecimal(PROTEIN));
+        values.put("carbs", PromptTemplate.oneDecimal(CARBS));
+        values.put("fat", PromptTemplate.oneDecimal(FAT));
+        return promptTemplates.render(PromptTemplates.NUTRITION_ADVICE, values);
+    }
+
+    /**
+     * 改造前 AIService.buildWorkoutPlanPrompt
+     */
+    private static String legacyWorkoutPlanPrompt(String username, HealthProfile profile) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("你是一位专业的健身教练和运动科学专家。请根据以下用户信息，生成一个详细、科学、可执行的个性化健身训练计划。\n\n");
+        prompt.append("【用户基本信息】\n");
+        prompt.append("- 用户名：").append(username).append("\n");
+        if (profile != null) {
+            prompt.append("\n【健康档案】\n");
+            if (profile.getFitnessGoal() != null) {
+                prompt.append("- 健身目标：").append(profile.getFitnessGoal()).append("\n");
+            }
+            if (profile.getActivityLevel() != null) {
+                prompt.append("- 活动水平：").append(profile.getActivityLevel()).append("\n");
+            }
+            if (profile.getHeight() != null && profile.getWeight() != null) {
+                prompt.append("- 身高：").append(profile.getHeight()).append("cm\n");
+                prompt.append("- 体重：").append(profile.getWeight()).append("kg\n");
+                if (profile.getBmi() != null) {
+                    prompt.append("- BMI：").append(String.format("%.1f", profile.getBmi())).append("\n");
+                }
+            }
+            if (profile.getTargetWeight() != null) {
+                prompt.append("- 目标体重：").append(profile.getTargetWeight()).append("kg\n");
+            }
+            if (profile.getBodyFat() != null) {
+                prompt.append("- 体脂率：").append(String.format("%.1f", profile.getBodyFat())).append("%\n");
+            }
+            if (profile.getMedicalHistory() != null && !profile.getMedicalHistory().isEmpty()) {
+                prompt.append("- 病史：").append(profile.getMedicalHistory()).append("\n");
+            }
+        }
+        prompt.append("\n【请生成训练计划要求】\n");
+        prompt.append("1. 计划时长：4周（28天）\n");
+        prompt.append("2. 训练频率：根据用户活动水平合理设置（每周3-5次）\n");
+        prompt.append("3. 训练内容：\n");
+        prompt.append("   - 针对用户健身目标设计（减脂/增肌/塑形/健康）\n");
+        prompt.append("   - 包含有氧运动和力量训练的科学搭配\n");
+        prompt.append("   - 每周的训练安排要循序渐进\n");
+        prompt.append("   - 每个训练日包含具体的运动项目、组数、次数、重量、时长、休息时间\n");
+        prompt.append("4. 难度设置：根据用户活动水平设置合适的难度（初级/中级/高级）\n");
+        prompt.append("5. 安全考虑：考虑用户的健康状况，避免高风险动作\n");
+        prompt.append("\n请以JSON格式返回训练计划，格式如下：\n");
+        prompt.append("{\n");
+        prompt.append("  \"duration\": 28,\n");
+        prompt.append("  \"frequency\": 4,\n");
+        prompt.append("  \"difficulty\": \"中级\",\n");
+        prompt.append("  \"goal\": \"减脂\",\n");
+        prompt.append("  \"description\": \"计划描述\",\n");
+        prompt.append("  \"planItems\": [\n");
+        prompt.append("    {\n");
+        prompt.append("      \"dayOfWeek\": 1,\n");
+        prompt.append("      \"exerciseName\": \"运动名称\",\n");
+        prompt.append("      \"exerciseType\": \"力量/有氧/混合\",\n");
+        prompt.append("      \"sets\": 3,\n");
+        prompt.append("      \"reps\": 12,\n");
+        prompt.append("      \"weight\": 10.0,\n");
+        prompt.append("      \"duration\": 1800,\n");
+        prompt.append("      \"restTime\": 60,\n");
+        prompt.append("      \"instructions\": \"动作说明\"\n");
+        prompt.append("    }\n");
+        prompt.append("  ]\n");
+        prompt.append("}\n");
+        prompt.append("\n如果无法返回JSON，请提供详细的文字描述，我会据此生成计划。");
+        return prompt.toString();
+    }
+
+    /**
+     * 改造前 AIService.getNutritionAdviceAsync 中的提示词拼接
+     */
+    private static String legacyNutritionAdvicePrompt(HealthProfile profile, Integer dailyCalories,
+                                                      Integer targetCalories, Double totalProtein,
+                                                      Double totalCarbs, Double totalFat) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("你是一位专业的营养师和健康顾问。请根据以下用户信息提供个性化、详细且实用的饮食建议。\n\n");
+        prompt.append("【用户健康档案】\n");
+        if (profile != null) {
+            if (profile.getFitnessGoal() != null) {
+                prompt.append("- 健身目标：").append(profile.getFitnessGoal()).append("\n");
+            }
+            if (profile.getActivityLevel() != null) {
+                prompt.append("- 活动水平：").append(profile.getActivityLevel()).append("\n");
+            }
+            if (profile.getHeight() != null && profile.getWeight() != null) {
+                prompt.append("- 身高：").append(profile.getHeight()).append("cm，体重：").append(profile.getWeight()).append("kg\n");
+                if (profile.getBmi() != null) {
+                    prompt.append("- BMI：").append(String.format("%.1f", profile.getBmi())).append("\n");
+                }
+            }
+            if (profile.getTargetWeight() != null) {
+                prompt.append("- 目标体重：").append(profile.getTargetWeight()).append("kg\n");
+            }
+            if (profile.getDietaryRestrictions() != null && !profile.getDietaryRestrictions().isEmpty()) {
+                prompt.append("- 饮食限制：").append(profile.getDietaryRestrictions()).append("\n");
+            }
+            if (profile.getAllergies() != null && !profile.getAllergies().isEmpty()) {
+                prompt.append("- 过敏信息：").append(profile.getAllergies()).append("\n");
+            }
+        }
+        prompt.append("\n【今日营养摄入情况】\n");
+        prompt.append("- 已摄入卡路里：").append(dailyCalories != null ? dailyCalories : 0).append(" 卡\n");
+        if (targetCalories != null) {
+            prompt.append("- 目标卡路里：").append(targetCalories).append(" 卡\n");
+            int remaining = targetCalories - (dailyCalories != null ? dailyCalories : 0);
+            if (remaining > 0) {
+                prompt.append("- 剩余卡路里：").append(remaining).append(" 卡\n");
+            } else if (remaining < 0) {
+                prompt.append("- 超出卡路里：").append(Math.abs(remaining)).append(" 卡（已超量）\n");
+            }
+        }
+        if (totalProtein != null) {
+            prompt.append("- 蛋白质：").append(String.format("%.1f", totalProtein)).append("g\n");
+        }
+        if (totalCarbs != null) {
+            prompt.append("- 碳水化合物：").append(String.format("%.1f", totalCarbs)).append("g\n");
+        }
+        if (totalFat != null) {
+            prompt.append("- 脂肪：").append(String.format("%.1f", totalFat)).append("g\n");
+        }
+        prompt.append("\n【请提供以下建议】\n");
+        prompt.append("1. 针对用户健身目标的个性化饮食建议（具体到每餐搭配）\n");
+        prompt.append("2. 今日营养摄入的详细评价（指出不足和优点）\n");
+        if (targetCalories != null && dailyCalories != null && dailyCalories > targetCalories) {
+            prompt.append("3. 卡路里超量的应对策略和调整建议\n");
+        } else if (targetCalories != null && dailyCalories != null) {
+            prompt.append("3. 剩余卡路里的合理分配建议\n");
+        }
+        prompt.append("4. 具体的食物推荐（列出3-5种适合的食物，考虑饮食限制和过敏信息）\n");
+        prompt.append("5. 营养搭配建议（蛋白质、碳水、脂肪的合理比例）\n");
+        prompt.append("6. 下一餐的建议（具体到食物种类和分量）\n");
+        prompt.append("\n请用中文回答，内容要专业、具体、实用，语气要友好鼓励。");
+        return prompt.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 提示词渲染按模板名和版本计数
+ */
+class PromptTemplatesTest {
+
+    @Test
+    void renderCountsByTemplateAndVersion() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PromptTemplates promptTemplates = new PromptTemplates(new DefaultResourceLoader(), meterRegistry);
+        ReflectionTestUtils.setField(promptTemplates, "location", "classpath:prompts/");
+        promptTemplates.init();
+        String version = promptTemplates.get(PromptTemplates.WORKOUT_PLAN).getVersion();
+
+        promptTemplates.render(PromptTemplates.WORKOUT_PLAN, Map.of("username", "zhangsan"));
+        promptTemplates.render(PromptTemplates.WORKOUT_PLAN, Map.of("username", "lisi"));
+
+        assertEquals(2.0, meterRegistry.get("ai.prompt.renders")
+                .tag("template", PromptTemplates.WORKOUT_PLAN)
+                .tag("version", version)
+                .counter().count());
+        assertEquals(0.0, meterRegistry.get("ai.prompt.renders")
+                .tag("template", PromptTemplates.NUTRITION_ADVICE)
+                .counter().count());
+    }
+}
@@ -0,0 +1,94 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 相似问题缓存的命中判定，阈值与 application.yml 一致
+ */
+class SimilarQuestionCacheTest {
+
+    private static final String ANSWER = "缓存的回答";
+    /** 以下长问题两两之间 Jaccard 相似度均高于 0.85，只能靠否定词和目标词区分 */
+    private static final String LONG_QUESTION = "减脂期间每天晚上力量训练结束以后马上可以吃一小碗米饭和鸡胸肉来补充能量吗";
+
+    private SimilarQuestionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SimilarQuestionCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "similarityThreshold", 0.85);
+        ReflectionTestUtils.setField(cache, "minLengthRatio", 0.8);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 3600L);
+        cache.init();
+    }
+
+    @Test
+    void hitsWhenOnlyPunctuationAndParticlesDiffer() {
+        cache.put("深蹲时膝盖疼怎么办？", ANSWER);
+
+        assertEquals(ANSWER, cache.get("深蹲时，膝盖疼怎么办呢"));
+    }
+
+    @Test
+    void hitsLongQuestionWithSameNegationsAndGoals() {
+        cache.put(LONG_QUESTION, ANSWER);
+
+        assertEquals(ANSWER, cache.get("减脂期间每天晚上力量训练结束之后马上可以吃一小碗米饭和鸡胸肉来补充能量吗"));
+    }
+
+    @Test
+    void missesLongQuestionWhenNegationDiffers() {
+        cache.put(LONG_QUESTION, ANSWER);
+
+        assertNull(cache.get("减脂期间每天晚上力量训练结束以后马上不可以吃一小碗米饭和鸡胸肉来补充能量吗"));
+    }
+
+    @Test
+    void missesLongQuestionWhenGoalDiffers() {
+        cache.put(LONG_QUESTION, ANSWER);
+
+        assertNull(cache.get("增肌期间每天晚上力量训练结束以后马上可以吃一小碗米饭和鸡胸肉来补充能量吗"));
+    }
+
+    @Test
+    void missesWhenNegationDiffers() {
+        cache.put("减脂期间不能吃米饭", ANSWER);
+
+        assertNull(cache.get("减脂期间能吃米饭"));
+    }
+
+    @Test
+    void missesWhenNegationIsAdded() {
+        cache.put("减脂期间能吃米饭", ANSWER);
+
+        assertNull(cache.get("减脂期间不能吃米饭"));
+    }
+
+    @Test
+    void missesWhenGoalDiffers() {
+        cache.put("增肌期间能吃米饭吗", ANSWER);
+
+        assertNull(cache.get("减脂期间能吃米饭吗"));
+    }
+
+    @Test
+    void missesWhenLengthDiffersTooMuch() {
+        cache.put("深蹲膝盖疼", ANSWER);
+
+        assertNull(cache.get("深蹲膝盖疼应该先停练还是继续做康复训练"));
+    }
+
+    @Test
+    void keyTermsKeepOrderOfNegationsAndGoals() {
+        assertEquals("减脂|不|", SimilarQuestionCache.keyTerms(SimilarQuestionCache.normalize("减脂期间不能吃米饭")));
+        assertEquals("增肌|", SimilarQuestionCache.keyTerms(SimilarQuestionCache.normalize("增肌期间能吃米饭吗")));
+    }
+}
@@ -0,0 +1,93 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SparkClient 对分帧回答的拼接，星火地址指向本地 SparkStandInServer
+ */
+class SparkClientTest {
+
+    private SparkStandInServer server;
+    private SparkClient sparkClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new SparkStandInServer()
+                .firstFrameDelay(10)
+                .frameInterval(5)
+                .chunks(5);
+        server.start();
+        sparkClient = newSparkClient(server.baseUrl());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        sparkClient.cleanup();
+        server.close();
+    }
+
+    @Test
+    void chatReturnsAllFramesJoined() throws Exception {
+        List<String> frames = new CopyOnWriteArrayList<>();
+
+        String answer = sparkClient.chat(SparkOperation.CHAT, "系统提示", Collections.emptyList(), "深蹲膝盖疼怎么办",
+                Deadline.none(), frames::add).get(5, TimeUnit.SECONDS);
+
+        assertEquals(server.getChatAnswer(), answer);
+        assertEquals(5, frames.size());
+        assertEquals(server.getChatAnswer(), String.join("", frames));
+    }
+
+    @Test
+    void chatFailsWhenClosedBeforeLastFrame() {
+        server.closeBeforeLastFrame(true);
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> sparkClient.chat(SparkOperation.CHAT, "系统提示", "深蹲膝盖疼怎么办").get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("回答结束前关闭"));
+    }
+
+    static SparkClient newSparkClient(String baseUrl) {
+        SparkAuthSigner authSigner = new SparkAuthSigner();
+        ReflectionTestUtils.setField(authSigner, "sparkApiKey", "test-key");
+        ReflectionTestUtils.setField(authSigner, "sparkApiSecret", "test-secret");
+        ReflectionTestUtils.setField(authSigner, "sparkAppId", "test-app");
+        ReflectionTestUtils.setField(authSigner, "sparkBaseUrl", baseUrl);
+        ReflectionTestUtils.setField(authSigner, "sparkChatUrl", "");
+        ReflectionTestUtils.setField(authSigner, "authUrlTtlSeconds", 60L);
+        authSigner.init();
+
+        SparkDns sparkDns = new SparkDns();
+        ReflectionTestUtils.setField(sparkDns, "sparkBaseUrl", baseUrl);
+        ReflectionTestUtils.setField(sparkDns, "sparkChatUrl", "");
+        ReflectionTestUtils.setField(sparkDns, "ttlSeconds", 300L);
+        sparkDns.init();
+
+        SparkMetrics sparkMetrics = new SparkMetrics(new SimpleMeterRegistry());
+        sparkMetrics.init();
+
+        SparkClient sparkClient = new SparkClient(authSigner, sparkMetrics, sparkDns);
+        ReflectionTestUtils.setField(sparkClient, "sparkApiKey", "test-key");
+        ReflectionTestUtils.setField(sparkClient, "sparkApiSecret", "test-secret");
+        ReflectionTestUtils.setField(sparkClient, "sparkAppId", "test-app");
+        ReflectionTestUtils.setField(sparkClient, "timeout", 5000);
+        ReflectionTestUtils.setField(sparkClient, "connectTimeoutMs", 2000);
+        sparkClient.init();
+        return sparkClient;
+    }
+}
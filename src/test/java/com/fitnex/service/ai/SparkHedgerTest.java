@@ -0,0 +1,91 @@
+package com.fitnex.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 对冲请求只使用并发隔离的空闲名额
+ */
+class SparkHedgerTest {
+
+    private static final long HEDGE_DELAY_MS = 50;
+
+    private MeterRegistry meterRegistry;
+    private SparkMetrics sparkMetrics;
+    private final List<CompletableFuture<String>> calls = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sparkMetrics = new SparkMetrics(meterRegistry);
+        sparkMetrics.init();
+    }
+
+    @Test
+    void skipsHedgeWhenBulkheadIsFull() throws Exception {
+        SparkBulkhead sparkBulkhead = newBulkhead(1);
+        CompletableFuture<String> result = submitHedged(sparkBulkhead, newHedger(sparkBulkhead));
+
+        TimeUnit.MILLISECONDS.sleep(HEDGE_DELAY_MS * 4);
+        assertEquals(1, calls.size());
+        assertEquals(1.0, meterRegistry.get("ai.spark.hedge.skipped").counter().count());
+        assertEquals(1, sparkBulkhead.getRunning());
+
+        calls.get(0).complete("primary");
+        assertEquals("primary", result.get(1, TimeUnit.SECONDS));
+        assertEquals(0, sparkBulkhead.getRunning());
+    }
+
+    @Test
+    void hedgeHoldsItsOwnPermitUntilDone() throws Exception {
+        SparkBulkhead sparkBulkhead = newBulkhead(2);
+        CompletableFuture<String> result = submitHedged(sparkBulkhead, newHedger(sparkBulkhead));
+
+        TimeUnit.MILLISECONDS.sleep(HEDGE_DELAY_MS * 4);
+        assertEquals(2, calls.size());
+        assertEquals(2, sparkBulkhead.getRunning());
+
+        calls.get(1).complete("hedge");
+        assertEquals("hedge", result.get(1, TimeUnit.SECONDS));
+        assertTrue(calls.get(0).isCancelled());
+        assertEquals(0, sparkBulkhead.getRunning());
+    }
+
+    private CompletableFuture<String> submitHedged(SparkBulkhead sparkBulkhead, SparkHedger sparkHedger) {
+        return sparkBulkhead.submit(SparkPriority.INTERACTIVE, () -> sparkHedger.execute(SparkOperation.CHAT,
+                Deadline.after(5000), frameListener -> {
+                    CompletableFuture<String> call = new CompletableFuture<>();
+                    calls.add(call);
+                    return call;
+                }));
+    }
+
+    private SparkBulkhead newBulkhead(int maxConcurrent) {
+        SparkBulkhead sparkBulkhead = new SparkBulkhead(meterRegistry);
+        ReflectionTestUtils.setField(sparkBulkhead, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(sparkBulkhead, "queueCapacity", 4);
+        ReflectionTestUtils.setField(sparkBulkhead, "maxWaitMs", 5000L);
+        sparkBulkhead.init();
+        return sparkBulkhead;
+    }
+
+    private SparkHedger newHedger(SparkBulkhead sparkBulkhead) {
+        SparkHedger sparkHedger = new SparkHedger(sparkMetrics, sparkBulkhead);
+        ReflectionTestUtils.setField(sparkHedger, "enabled", true);
+        ReflectionTestUtils.setField(sparkHedger, "minDelayMs", HEDGE_DELAY_MS);
+        ReflectionTestUtils.setField(sparkHedger, "defaultDelayMs", HEDGE_DELAY_MS);
+        ReflectionTestUtils.setField(sparkHedger, "maxInFlight", 4);
+        return sparkHedger;
+    }
+}
@@ -0,0 +1,174 @@
+package com.fitnex.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitnex.entity.NutritionRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 星火响应帧和营养识别结果的解析耗时：
+ * legacy* 为改造前的 Map 反序列化与逐字段 indexOf 扫描，streaming* 为 SparkFrame / NutritionResponseParser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SparkResponseParsingBenchmark {
+
+    private static final String FRAME = "{\"header\":{\"code\":0,\"message\":\"Success\",\"sid\":\"cht000b8a1e@dx18f2\","
+            + "\"status\":1},\"payload\":{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"深蹲时膝盖疼痛多与膝盖内扣、重心前移有关，建议先降低重量，保持膝盖与脚尖方向一致。\"}}],"
+            + "\"usage\":{\"text\":{\"question_tokens\":12,\"prompt_tokens\":356,\"completion_tokens\":48,"
+            + "\"total_tokens\":404}}}}";
+
+    private static final String NUTRITION_RESPONSE = "根据图片识别，结果如下：\n```json\n{\n"
+            + "  \"foodName\": \"鸡胸肉沙拉\",\n  \"quantity\": 250,\n  \"calories\": 320,\n  \"protein\": 35.5,\n"
+            + "  \"carbs\": 12.8,\n  \"fat\": 14.2,\n  \"fiber\": 4.6,\n  \"mealType\": \"LUNCH\"\n}\n```\n"
+            + "以上数值为估算，仅供参考。";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Benchmark
+    public String legacyFrame() throws Exception {
+        return legacyFrameContent(objectMapper, FRAME);
+    }
+
+    @Benchmark
+    public String streamingFrame() throws Exception {
+        return SparkFrame.parse(FRAME).content();
+    }
+
+    @Benchmark
+    public NutritionRecord legacyNutrition() {
+        return legacyNutrition(NUTRITION_RESPONSE);
+    }
+
+    @Benchmark
+    public NutritionRecord streamingNutrition() {
+        NutritionRecord record = new NutritionRecord();
+        NutritionResponseParser.fill(record, NUTRITION_RESPONSE);
+        return record;
+    }
+
+    /**
+     * 改造前 SparkClient.onMessage 的解析方式
+     */
+    @SuppressWarnings("unchecked")
+    private static String legacyFrameContent(ObjectMapper objectMapper, String message) throws Exception {
+        String content = null;
+        Map<String, Object> resp = objectMapper.readValue(message, Map.class);
+        if (resp.containsKey("payload")) {
+            Map<String, Object> payload = (Map<String, Object>) resp.get("payload");
+            if (payload != null && payload.containsKey("choices")) {
+                List<Map<String, Object>> choices = (List<Map<String, Object>>) payload.get("choices");
+                if (!choices.isEmpty()) {
+                    Map<String, Object> choice = choices.get(0);
+                    if (choice.containsKey("message")) {
+                        Map<String, Object> msgObj = (Map<String, Object>) choice.get("message");
+                        content = (String) msgObj.get("content");
+                    }
+                }
+            }
+        }
+        return content;
+    }
+
+    /**
+     * 改造前 AIService.parseNutritionFromAIResponse 的字段提取部分
+     */
+    private static NutritionRecord legacyNutrition(String aiResponse) {
+        NutritionRecord record = new NutritionRecord();
+        String jsonStr = aiResponse.trim();
+        if (jsonStr.contains("```json")) {
+            jsonStr = jsonStr.substring(jsonStr.indexOf("```json") + 7);
+            jsonStr = jsonStr.substring(0, jsonStr.indexOf("```")).trim();
+        } else if (jsonStr.contains("```")) {
+            jsonStr = jsonStr.substring(jsonStr.indexOf("```") + 3);
+            jsonStr = jsonStr.substring(0, jsonStr.indexOf("```")).trim();
+        }
+        if (jsonStr.contains("\"foodName\"")) {
+            record.setFoodName(extractJsonValue(jsonStr, "foodName"));
+        }
+        if (jsonStr.contains("\"quantity\"")) {
+            String qty = extractJsonValue(jsonStr, "quantity");
+            if (qty != null && !qty.isEmpty()) {
+                record.setQuantity(Double.parseDouble(qty));
+                record.setUnit("克");
+            }
+        }
+        if (jsonStr.contains("\"calories\"")) {
+            String cal = extractJsonValue(jsonStr, "calories");
+            if (cal != null && !cal.isEmpty()) {
+                record.setCalories(Integer.parseInt(cal));
+            }
+        }
+        if (jsonStr.contains("\"protein\"")) {
+            String prot = extractJsonValue(jsonStr, "protein");
+            if (prot != null && !prot.isEmpty()) {
+                record.setProtein(Double.parseDouble(prot));
+            }
+        }
+        if (jsonStr.contains("\"carbs\"")) {
+            String carbs = extractJsonValue(jsonStr, "carbs");
+            if (carbs != null && !carbs.isEmpty()) {
+                record.setCarbs(Double.parseDouble(carbs));
+            }
+        }
+        if (jsonStr.contains("\"fat\"")) {
+            String fat = extractJsonValue(jsonStr, "fat");
+            if (fat != null && !fat.isEmpty()) {
+                record.setFat(Double.parseDouble(fat));
+            }
+        }
+        if (jsonStr.contains("\"fiber\"")) {
+            String fiber = extractJsonValue(jsonStr, "fiber");
+            if (fiber != null && !fiber.isEmpty()) {
+                record.setFiber(Double.parseDouble(fiber));
+            }
+        }
+        if (jsonStr.contains("\"mealType\"")) {
+            record.setMealType(extractJsonValue(jsonStr, "mealType"));
+        }
+        return record;
+    }
+
+    private static String extractJsonValue(String json, String key) {
+        String searchKey = "\"" + key + "\"";
+        int keyIndex = json.indexOf(searchKey);
+        if (keyIndex == -1) return null;
+        int colonIndex = json.indexOf(":", keyIndex);
+        if (colonIndex == -1) return null;
+        int startIndex = colonIndex + 1;
+        while (startIndex < json.length() && (json.charAt(startIndex) == ' ' || json.charAt(startIndex) == '\t')) {
+            startIndex++;
+        }
+        if (startIndex >= json.length()) return null;
+        char firstChar = json.charAt(startIndex);
+        if (firstChar == '"') {
+            int endIndex = json.indexOf('"', startIndex + 1);
+            if (endIndex == -1) return null;
+            return json.substring(startIndex + 1, endIndex);
+        }
+        int endIndex = startIndex;
+        while (endIndex < json.length() &&
+                (Character.isDigit(json.charAt(endIndex)) ||
+                        json.charAt(endIndex) == '.' ||
+                        json.charAt(endIndex) == '-')) {
+            endIndex++;
+        }
+        return endIndex > startIndex ? json.substring(startIndex, endIndex) : null;
+    }
+}
@@ -0,0 +1,228 @@
+package com.fitnex.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用星火模拟服务：基于 MockWebServer 的 WebSocket，收到请求帧后按星火响应帧格式
+ * （header.code / header.status、payload.choices[0].message.content）回放回答。
+ * 可配置首帧延迟、帧间隔、分帧数量，以及按比例注入错误码帧和连接中断，压测时不消耗星火额度。
+ */
+class SparkStandInServer implements Closeable {
+
+    static final String CHAT_PATH = "/v2.1/chat";
+    static final String IMAGE_PATH = "/v2.1/image";
+
+    /** 星火鉴权、限流等错误使用的非零错误码 */
+    static final int ERROR_CODE = 10013;
+
+    private static final String DEFAULT_CHAT_ANSWER = "深蹲时膝盖疼痛多与膝盖内扣、重心前移有关。" +
+            "建议先降低重量，保持膝盖与脚尖方向一致，下蹲时臀部向后坐，必要时进行髋部和臀中肌的激活训练。";
+    private static final String DEFAULT_IMAGE_ANSWER = "{\"foodName\": \"鸡胸肉\", \"quantity\": 150, " +
+            "\"calories\": 198, \"protein\": 37.2, \"carbs\": 0, \"fat\": 4.3, \"fiber\": 0, \"mealType\": \"LUNCH\"}";
+
+    private final MockWebServer server = new MockWebServer();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile long firstFrameDelayMs = 200;
+    private volatile long frameIntervalMs = 20;
+    private volatile int chunks = 8;
+    private volatile double errorRate;
+    private volatile double disconnectRate;
+    private volatile boolean closeBeforeLastFrame;
+    private volatile String chatAnswer = DEFAULT_CHAT_ANSWER;
+    private volatile String imageAnswer = DEFAULT_IMAGE_ANSWER;
+
+    /** 收到请求帧到发出首帧的延迟 */
+    SparkStandInServer firstFrameDelay(long millis) {
+        this.firstFrameDelayMs = millis;
+        return this;
+    }
+
+    /** 相邻两帧的间隔 */
+    SparkStandInServer frameInterval(long millis) {
+        this.frameIntervalMs = millis;
+        return this;
+    }
+
+    /** 文本回答拆分的帧数，图片识别结果始终在最后一帧完整返回 */
+    SparkStandInServer chunks(int chunks) {
+        this.chunks = Math.max(1, chunks);
+        return this;
+    }
+
+    /** 以该比例返回非零错误码帧 */
+    SparkStandInServer errorRate(double rate) {
+        this.errorRate = rate;
+        return this;
+    }
+
+    /** 以该比例在首帧延迟后直接断开连接，不发送任何帧 */
+    SparkStandInServer disconnectRate(double rate) {
+        this.disconnectRate = rate;
+        return this;
+    }
+
+    /** 发完倒数第二帧后正常关闭连接，不发送 status=2 的结束帧 */
+    SparkStandInServer closeBeforeLastFrame(boolean close) {
+        this.closeBeforeLastFrame = close;
+        return this;
+    }
+
+    SparkStandInServer chatAnswer(String answer) {
+        this.chatAnswer = answer;
+        return this;
+    }
+
+    SparkStandInServer imageAnswer(String answer) {
+        this.imageAnswer = answer;
+        return this;
+    }
+
+    void start() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getRequestUrl() != null ? request.getRequestUrl().encodedPath() : "";
+                if (CHAT_PATH.equals(path)) {
+                    return new MockResponse().withWebSocketUpgrade(new Replay(false));
+                }
+                if (IMAGE_PATH.equals(path)) {
+                    return new MockResponse().withWebSocketUpgrade(new Replay(true));
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * 对应 ai.spark.base-url，文本对话地址由其推导为 /v2.1/chat
+     */
+    String baseUrl() {
+        return "ws://" + server.getHostName() + ":" + server.getPort() + IMAGE_PATH;
+    }
+
+    /**
+     * 文本对话的完整回答，用于校验客户端拼接结果
+     */
+    String getChatAnswer() {
+        return chatAnswer;
+    }
+
+    /**
+     * 已收到的请求帧数（含对冲请求）
+     */
+    int getRequestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        server.shutdown();
+    }
+
+    private final class Replay extends WebSocketListener {
+
+        private final boolean image;
+
+        Replay(boolean image) {
+            this.image = image;
+        }
+
+        @Override
+        public void onMessage(WebSocket ws, String text) {
+            requests.incrementAndGet();
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < errorRate) {
+                schedule(firstFrameDelayMs, () -> {
+                    ws.send(frame(ERROR_CODE, "模拟错误", SparkFrame.STATUS_LAST, null));
+                    ws.close(1000, "error");
+                });
+                return;
+            }
+            if (roll < errorRate + disconnectRate) {
+                schedule(firstFrameDelayMs, ws::cancel);
+                return;
+            }
+            List<String> contents = image ? List.of(imageAnswer) : split(chatAnswer, chunks);
+            for (int i = 0; i < contents.size(); i++) {
+                boolean last = i == contents.size() - 1;
+                long delay = firstFrameDelayMs + i * frameIntervalMs;
+                if (last && closeBeforeLastFrame) {
+                    schedule(delay, () -> ws.close(1000, "closed"));
+                    break;
+                }
+                int status = last ? SparkFrame.STATUS_LAST : (i == 0 ? 0 : 1);
+                String json = frame(0, "Success", status, contents.get(i));
+                schedule(delay, () -> {
+                    ws.send(json);
+                    if (last) {
+                        ws.close(1000, "completed");
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket ws, int code, String reason) {
+            ws.close(1000, null);
+        }
+
+        @Override
+        public void onFailure(WebSocket ws, Throwable t, Response response) {
+            // 客户端超时或取消后主动关闭，忽略
+        }
+    }
+
+    private void schedule(long delayMs, Runnable action) {
+        try {
+            scheduler.schedule(action, delayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // 服务已关闭
+        }
+    }
+
+    private String frame(int code, String message, int status, String content) {
+        try {
+            Map<String, Object> header = Map.of("code", code, "message", message, "status", status,
+                    "sid", "standin-" + requests.get());
+            Map<String, Object> payload = content != null
+                    ? Map.of("choices", List.of(Map.of("index", 0,
+                            "message", Map.of("role", "assistant", "content", content))))
+                    : Map.of();
+            return objectMapper.writeValueAsString(Map.of("header", header, "payload", payload));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> split(String text, int parts) {
+        int size = Math.max(1, (text.length() + parts - 1) / parts);
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += size) {
+            chunks.add(text.substring(i, Math.min(text.length(), i + size)));
+        }
+        return chunks.isEmpty() ? List.of(text) : chunks;
+    }
+}